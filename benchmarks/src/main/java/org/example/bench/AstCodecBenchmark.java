@@ -0,0 +1,67 @@
+package org.example.bench;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.AstCodec;
+import org.example.lab6.ast.FlatAst;
+import org.example.lab6.ast.ProgramNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a program from its {@link AstCodec} bytes versus parsing its source
+ * again, into both the object tree and the {@link FlatAst}, plus encoding.
+ * The bytes sit in a direct buffer, as they would when memory mapped.
+ * {@link AstFootprint} prints the encoded size next to the source size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AstCodecBenchmark {
+
+    @Param({"100", "10000"})
+    public int statements;
+
+    private String source;
+    private FlatAst flat;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setup() {
+        source = SyntheticInputs.program(new Random(42), statements);
+        flat = new Parser(TokenBuffer.of(source)).parseFlat();
+        byte[] bytes = AstCodec.encode(flat);
+        encoded = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return AstCodec.encode(flat);
+    }
+
+    @Benchmark
+    public ProgramNode decode() {
+        return AstCodec.decode(encoded.duplicate());
+    }
+
+    @Benchmark
+    public FlatAst decodeFlat() {
+        return AstCodec.decodeFlat(encoded.duplicate());
+    }
+
+    @Benchmark
+    public ProgramNode parse() {
+        return new Parser(TokenBuffer.of(source)).parse();
+    }
+
+    @Benchmark
+    public FlatAst parseFlat() {
+        return new Parser(TokenBuffer.of(source)).parseFlat();
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.bench;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.AstCodec;
+import org.example.lab6.ast.FlatAst;
+import org.example.lab6.ast.ProgramNode;
+
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Retained heap per AST node: the object tree from {@link Parser#parse()}
+ * versus the {@link FlatAst} from {@link Parser#parseFlat()}, for the same
+ * synthetic program. Measured as the growth of used heap after full GCs, so
+ * it includes object headers, padding, lexeme strings and list backing
+ * arrays. Also prints the size of the {@link AstCodec} encoding against the
+ * UTF-8 source. Not a JMH benchmark; run it directly:
+ *
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar org.example.bench.AstFootprint [statements]
+ * </pre>
+ */
+public class AstFootprint {
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String source = SyntheticInputs.program(new Random(42), statements);
+        TokenBuffer tokens = TokenBuffer.of(source);
+
+        long before = usedHeap();
+        ProgramNode tree = new Parser(tokens).parse();
+        long treeBytes = usedHeap() - before;
+        int nodes = FlatAst.of(tree).size();
+        Reference.reachabilityFence(tree);
+        tree = null;
+
+        before = usedHeap();
+        FlatAst flat = new Parser(tokens).parseFlat();
+        long flatBytes = usedHeap() - before;
+        Reference.reachabilityFence(flat);
+
+        System.out.printf("%d statements, %d nodes%n", statements, nodes);
+        System.out.printf("object tree: %,d bytes, %.1f bytes/node%n", treeBytes, (double) treeBytes / nodes);
+        System.out.printf("flat AST:    %,d bytes, %.1f bytes/node (arrays alone: %.1f)%n",
+                flatBytes, (double) flatBytes / nodes, (double) flat.footprintBytes() / nodes);
+        long sourceBytes = source.getBytes(StandardCharsets.UTF_8).length;
+        long encodedBytes = AstCodec.encode(flat).length;
+        System.out.printf("encoded:     %,d bytes, %.1f bytes/node (source: %,d bytes, %.1f bytes/node)%n",
+                encodedBytes, (double) encodedBytes / nodes, sourceBytes, (double) sourceBytes / nodes);
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.bench;
+
+import org.example.BitParallelNfa;
+import org.example.CompiledAutomaton;
+import org.example.FiniteAutomaton;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Membership and determinization cost for {@link SyntheticInputs#nthFromEnd}
+ * automata: {@code automatonSize} + 1 NFA states, 2^automatonSize DFA states.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutomatonBenchmark {
+
+    @Param({"4", "8", "12"})
+    public int automatonSize;
+
+    @Param({"64", "4096"})
+    public int inputSize;
+
+    private FiniteAutomaton nfa;
+    private CompiledAutomaton dfa;
+    private BitParallelNfa bitNfa;
+    private String[] inputs;
+
+    @Setup
+    public void setup() {
+        nfa = SyntheticInputs.nthFromEnd(automatonSize);
+        dfa = nfa.compile();
+        bitNfa = nfa.compileNfa();
+        Random random = new Random(42);
+        inputs = new String[16];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = SyntheticInputs.randomWord(random, inputSize, 2);
+        }
+    }
+
+    @Benchmark
+    public void stringBelongToLanguage(Blackhole bh) {
+        for (String s : inputs) bh.consume(nfa.stringBelongToLanguage(s));
+    }
+
+    @Benchmark
+    public void compiledDfa(Blackhole bh) {
+        for (String s : inputs) bh.consume(dfa.matches(s));
+    }
+
+    @Benchmark
+    public void bitParallelNfa(Blackhole bh) {
+        for (String s : inputs) bh.consume(bitNfa.matches(s));
+    }
+
+    @Benchmark
+    public FiniteAutomaton toDFA() {
+        return nfa.toDFA();
+    }
+
+    @Benchmark
+    public CompiledAutomaton determinizeAndMinimize() {
+        return nfa.determinize(1 << 20).minimize();
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}: the standard JMH command line, with the
+ * GC profiler ({@code -prof gc}) always on so every run reports allocation
+ * rates (gc.alloc.rate.norm = bytes allocated per operation).
+ *
+ * <pre>
+ *   java -jar benchmarks/target/benchmarks.jar                      # everything
+ *   java -jar benchmarks/target/benchmarks.jar Lexer -p statements=10000
+ *   java -jar benchmarks/target/benchmarks.jar -rf json -rff baseline.json
+ * </pre>
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.bench;
+
+import org.example.lab5.CFGrammar;
+import org.example.lab5.CNFConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CNF conversion of random grammars with {@code nonTerminals} non-terminals.
+ * Runs the same five steps as {@link CNFConverter#convert()}, minus the
+ * per-step printing, so console I/O does not dominate the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CnfBenchmark {
+
+    @Param({"5", "20", "50"})
+    public int nonTerminals;
+
+    private CFGrammar grammar;
+
+    @Setup
+    public void setup() {
+        grammar = SyntheticInputs.grammar(new Random(42), nonTerminals);
+    }
+
+    @Benchmark
+    public CFGrammar convert() {
+        CNFConverter converter = new CNFConverter(grammar);
+        converter.eliminateEpsilon();
+        converter.eliminateUnitProductions();
+        converter.eliminateInaccessible();
+        converter.eliminateNonProductive();
+        return converter.toCNF();
+    }
+}
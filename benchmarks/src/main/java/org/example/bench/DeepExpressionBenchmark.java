@@ -0,0 +1,74 @@
+package org.example.bench;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.FlatAst;
+import org.example.lab6.ast.ProgramNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One machine-generated assignment of {@code size} levels or terms, the kind
+ * of input that overflowed the stack while expressions were parsed by
+ * recursive descent. Tokens are lexed up front.
+ *
+ * <ul>
+ *   <li>{@code parens}: {@code ((((1))))}</li>
+ *   <li>{@code unary}: {@code - - - - 1}</li>
+ *   <li>{@code calls}: {@code save(save(save(1)))}</li>
+ *   <li>{@code rightNested}: {@code (1 + (1 * (1 + 1)))}</li>
+ *   <li>{@code wide}: {@code 1 + 1 * 1 - 1 / 1 ...}</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeepExpressionBenchmark {
+
+    @Param({"parens", "unary", "calls", "rightNested", "wide"})
+    public String shape;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private TokenBuffer tokens;
+
+    @Setup
+    public void setup() {
+        tokens = TokenBuffer.of("x = " + expression(shape, size) + ";");
+    }
+
+    private static String expression(String shape, int size) {
+        StringBuilder sb = new StringBuilder();
+        switch (shape) {
+            case "parens" -> sb.append("(".repeat(size)).append('1').append(")".repeat(size));
+            case "unary" -> sb.append("- ".repeat(size)).append('1');
+            case "calls" -> sb.append("save(".repeat(size)).append('1').append(")".repeat(size));
+            case "rightNested" -> {
+                for (int i = 0; i < size; i++) sb.append(i % 2 == 0 ? "(1 + " : "(1 * ");
+                sb.append('1').append(")".repeat(size));
+            }
+            case "wide" -> {
+                String[] ops = {" + ", " * ", " - ", " / "};
+                sb.append('1');
+                for (int i = 0; i < size; i++) sb.append(ops[i & 3]).append('1');
+            }
+            default -> throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public ProgramNode parse() {
+        return new Parser(tokens).parse();
+    }
+
+    @Benchmark
+    public FlatAst parseFlat() {
+        return new Parser(tokens).parseFlat();
+    }
+}
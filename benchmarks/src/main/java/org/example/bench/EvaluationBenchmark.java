@@ -0,0 +1,145 @@
+package org.example.bench;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.ProgramNode;
+import org.example.lab6.eval.BytecodeCompiler;
+import org.example.lab6.eval.BytecodeProgram;
+import org.example.lab6.eval.ClassFileCompiler;
+import org.example.lab6.eval.ColumnarEvaluator;
+import org.example.lab6.eval.Evaluator;
+import org.example.lab6.eval.JvmProgram;
+import org.example.lab6.eval.Optimizer;
+import org.example.lab6.eval.Variables;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluating one parsed program over {@link #RECORDS} different input records
+ * (random values for every variable), reported per record. Each record is
+ * copied into a scratch environment first, so assignments never feed back
+ * into the inputs. The columnar variant gets the same records as one column
+ * per variable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+
+    public static final int RECORDS = 1024;
+
+    @Param({"10", "100"})
+    public int statements;
+
+    private ProgramNode program;
+    private Variables variables;
+    private Evaluator treeWalker;
+    private Evaluator optimized;
+    private BytecodeProgram bytecode;
+    private JvmProgram jvm;
+    private ColumnarEvaluator columnar;
+    private double[][] records;
+    private double[][] optimizedRecords; // the records in the optimized program's slot layout
+    private double[][] inputColumns; // the records transposed: [slot][record]
+    private double[][] columns;
+    private double[] env;
+    private double[] optimizedEnv;
+    private double[] frame;
+    private Map<String, Double> map;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        program = new Parser(TokenBuffer.of(SyntheticInputs.program(random, statements))).parse();
+        treeWalker = new Evaluator(program);
+        bytecode = BytecodeCompiler.compile(program);
+        jvm = ClassFileCompiler.compile(program, Map.of());
+        variables = treeWalker.variables();
+        records = new double[RECORDS][];
+        for (int i = 0; i < RECORDS; i++) {
+            double[] env = treeWalker.newEnvironment();
+            for (int s = 0; s < env.length; s++) env[s] = random.nextInt(10_000);
+            records[i] = env;
+        }
+        optimized = new Evaluator(Optimizer.optimize(program).program());
+        optimizedRecords = new double[RECORDS][];
+        for (int i = 0; i < RECORDS; i++) {
+            double[] env = optimized.newEnvironment();
+            for (int s = 0; s < records[i].length; s++) {
+                int slot = optimized.variables().slot(variables.name(s));
+                if (slot >= 0) env[slot] = records[i][s];
+            }
+            optimizedRecords[i] = env;
+        }
+        optimizedEnv = optimized.newEnvironment();
+        columnar = new ColumnarEvaluator(program);
+        inputColumns = columnar.newColumns(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            for (int s = 0; s < inputColumns.length; s++) inputColumns[s][i] = records[i][s];
+        }
+        columns = columnar.newColumns(RECORDS);
+        env = treeWalker.newEnvironment();
+        frame = bytecode.newEnvironment();
+        map = new HashMap<>();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void naive() {
+        for (double[] record : records) {
+            map.clear();
+            for (int s = 0; s < record.length; s++) map.put(variables.name(s), record[s]);
+            NaiveInterpreter.run(program, map);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void treeWalker() {
+        for (double[] record : records) {
+            System.arraycopy(record, 0, env, 0, env.length);
+            treeWalker.evaluate(env);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void optimizedTreeWalker() {
+        for (double[] record : optimizedRecords) {
+            System.arraycopy(record, 0, optimizedEnv, 0, optimizedEnv.length);
+            optimized.evaluate(optimizedEnv);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void bytecode() {
+        for (double[] record : records) {
+            System.arraycopy(record, 0, frame, 0, record.length);
+            bytecode.evaluate(frame);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void jvm() {
+        for (double[] record : records) {
+            System.arraycopy(record, 0, env, 0, env.length);
+            jvm.evaluate(env);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void columnar() {
+        for (int s = 0; s < columns.length; s++) System.arraycopy(inputColumns[s], 0, columns[s], 0, RECORDS);
+        columnar.evaluate(columns, RECORDS);
+    }
+}
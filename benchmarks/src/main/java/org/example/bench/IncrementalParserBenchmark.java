@@ -0,0 +1,59 @@
+package org.example.bench;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.IncrementalParser;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.ProgramNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single-character edit in a large program: {@link IncrementalParser#edit}
+ * versus lexing and parsing the whole text again. Each incremental invocation
+ * types a space at a random offset and deletes it again, so the document stays
+ * the same from one invocation to the next; the time is per edit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalParserBenchmark {
+
+    private static final int OFFSETS = 1024;
+
+    @Param({"100000"})
+    public int statements;
+
+    private String source;
+    private IncrementalParser document;
+    private int[] offsets;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        source = SyntheticInputs.program(random, statements);
+        document = new IncrementalParser(source);
+        offsets = new int[OFFSETS];
+        for (int i = 0; i < OFFSETS; i++) offsets[i] = random.nextInt(source.length());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public int incrementalEdit() {
+        int offset = offsets[next++ & (OFFSETS - 1)];
+        document.edit(offset, 0, " ");
+        int reparsed = document.lastReparsed();
+        document.edit(offset, 1, "");
+        return reparsed + document.lastReparsed();
+    }
+
+    @Benchmark
+    public ProgramNode fullReparse() {
+        return new Parser(TokenBuffer.of(source)).parse();
+    }
+}
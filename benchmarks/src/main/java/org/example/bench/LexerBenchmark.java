@@ -0,0 +1,52 @@
+package org.example.bench;
+
+import org.example.lab3.Lexer;
+import org.example.lab3.TableLexer;
+import org.example.lab3.Token;
+import org.example.lab3.TokenType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Lexer#tokenize()} versus {@link TableLexer} (cursor scan only, and its
+ * {@code List<Token>} wrapper) over generated programs of {@code statements} statements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"100", "10000"})
+    public int statements;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = SyntheticInputs.program(new Random(42), statements);
+    }
+
+    @Benchmark
+    public List<Token> tokenize() {
+        return new Lexer(source).tokenize();
+    }
+
+    @Benchmark
+    public int tableScan() {
+        TableLexer lexer = new TableLexer(source);
+        int count = 0;
+        while (lexer.next() != TokenType.EOF) count += lexer.length();
+        return count;
+    }
+
+    @Benchmark
+    public List<Token> tableTokenize() {
+        return new TableLexer(source).tokenize();
+    }
+}
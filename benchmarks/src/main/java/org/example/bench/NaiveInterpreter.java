@@ -0,0 +1,71 @@
+package org.example.bench;
+
+import org.example.lab6.ast.*;
+import org.example.lab6.eval.Evaluator;
+
+import java.util.Map;
+
+/**
+ * Baseline for the evaluation benchmarks: walks the lab 6 AST directly,
+ * keeping variables in a {@code Map<String, Double>} and dispatching on
+ * operator strings at every node. Same semantics as {@link Evaluator};
+ * calls pass their first argument through.
+ */
+public final class NaiveInterpreter {
+
+    private NaiveInterpreter() {}
+
+    public static void run(ProgramNode program, Map<String, Double> vars) {
+        for (ASTNode stmt : program.getStatements()) eval(stmt, vars);
+    }
+
+    static double eval(ASTNode node, Map<String, Double> vars) {
+        if (node instanceof NumberNode n) {
+            return Evaluator.literal(n);
+        }
+        if (node instanceof IdentifierNode id) {
+            return vars.getOrDefault(id.getName(), 0.0);
+        }
+        if (node instanceof KeywordNode k) {
+            return vars.getOrDefault(k.getKeyword(), 0.0);
+        }
+        if (node instanceof AssignNode a) {
+            double v = eval(a.getValue(), vars);
+            vars.put(a.getName(), v);
+            return v;
+        }
+        if (node instanceof UnaryOpNode u) {
+            return -eval(u.getOperand(), vars);
+        }
+        if (node instanceof BinaryOpNode b) {
+            double l = eval(b.getLeft(), vars);
+            double r = eval(b.getRight(), vars);
+            switch (b.getOp()) {
+                case "+":  return l + r;
+                case "-":  return l - r;
+                case "*":  return l * r;
+                case "/":  return l / r;
+                case ">":  return l >  r ? 1 : 0;
+                case "<":  return l <  r ? 1 : 0;
+                case ">=": return l >= r ? 1 : 0;
+                case "<=": return l <= r ? 1 : 0;
+                case "==": return l == r ? 1 : 0;
+                case "!=": return l != r ? 1 : 0;
+                default:   throw new IllegalArgumentException(b.getOp());
+            }
+        }
+        if (node instanceof IfNode i) {
+            if (eval(i.getCondition(), vars) != 0) return eval(i.getThenBranch(), vars);
+            return i.getElseBranch() == null ? 0 : eval(i.getElseBranch(), vars);
+        }
+        if (node instanceof CallNode c) {
+            double first = 0;
+            for (int j = 0; j < c.getArgs().size(); j++) {
+                double v = eval(c.getArgs().get(j), vars);
+                if (j == 0) first = v;
+            }
+            return first;
+        }
+        throw new IllegalArgumentException(node.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.bench;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.ParseCache;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.ProgramNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading one of {@code scripts} programs through a {@link ParseCache}: a hit
+ * in memory, a hit on disk (the memory budget is zero, so every lookup reads
+ * the program's file), and a plain parse for comparison. Time is per script.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseCacheBenchmark {
+
+    @Param({"256"})
+    public int scripts;
+
+    @Param({"100"})
+    public int statements;
+
+    private String[] sources;
+    private Path directory;
+    private ParseCache memory;
+    private ParseCache disk;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        sources = new String[scripts];
+        for (int i = 0; i < scripts; i++) sources[i] = SyntheticInputs.program(random, statements);
+        directory = Files.createTempDirectory("parse-cache");
+        memory = new ParseCache(Long.MAX_VALUE);
+        disk = new ParseCache(0, directory);
+        for (String source : sources) {
+            memory.parse(source);
+            disk.parse(source);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    private String nextSource() {
+        return sources[next++ % scripts];
+    }
+
+    @Benchmark
+    public ProgramNode memoryHit() {
+        return memory.parse(nextSource());
+    }
+
+    @Benchmark
+    public ProgramNode diskHit() {
+        return disk.parse(nextSource());
+    }
+
+    @Benchmark
+    public ProgramNode parse() {
+        return new Parser(TokenBuffer.of(nextSource())).parse();
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.bench;
+
+import org.example.lab3.Lexer;
+import org.example.lab3.StreamingLexer;
+import org.example.lab3.Token;
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.ParallelParser;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.FlatAst;
+import org.example.lab6.ast.ProgramNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Parser#parse()} on pre-lexed tokens, and the full lex + parse pipeline,
+ * over a {@code List<Token>}, a {@link TokenBuffer} and a {@link StreamingLexer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"100", "10000"})
+    public int statements;
+
+    private String source;
+    private List<Token> tokens;
+    private TokenBuffer buffer;
+
+    @Setup
+    public void setup() {
+        source = SyntheticInputs.program(new Random(42), statements);
+        tokens = new Lexer(source).tokenize();
+        buffer = TokenBuffer.of(source);
+    }
+
+    @Benchmark
+    public ProgramNode parse() {
+        return new Parser(tokens).parse();
+    }
+
+    @Benchmark
+    public ProgramNode lexAndParse() {
+        return new Parser(new Lexer(source).tokenize()).parse();
+    }
+
+    @Benchmark
+    public ProgramNode parseBuffer() {
+        return new Parser(buffer).parse();
+    }
+
+    /** Straight into the struct-of-arrays AST: no node objects. */
+    @Benchmark
+    public FlatAst parseFlat() {
+        return new Parser(buffer).parseFlat();
+    }
+
+    @Benchmark
+    public ProgramNode lexAndParseBuffer() {
+        return new Parser(TokenBuffer.of(source)).parse();
+    }
+
+    @Benchmark
+    public ProgramNode lexAndParseStreaming() {
+        return new Parser(new StreamingLexer(new StringReader(source))).parse();
+    }
+
+    /** Statement-at-a-time over a StreamingLexer: no token list and no ProgramNode. */
+    @Benchmark
+    public void lexAndParseStatements(Blackhole bh) {
+        new Parser(new StreamingLexer(new StringReader(source))).parse(bh::consume);
+    }
+
+    /** Chunked lex + parse on the common fork-join pool. */
+    @Benchmark
+    public ProgramNode lexAndParseParallel() {
+        return new ParallelParser().parse(source);
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.bench;
+
+import org.example.FiniteAutomaton;
+import org.example.lab5.CFGrammar;
+
+import java.util.*;
+
+/** Deterministic (seeded) generators for benchmark inputs of a given size. */
+public final class SyntheticInputs {
+
+    private static final String[] KEYWORDS = {"income", "expense", "tax", "profit", "loss"};
+    private static final String[] CALLS = {"save", "invest", "budget"};
+    private static final String[] COMPARISONS = {">", "<", ">=", "<=", "==", "!="};
+    private static final String[] ARITHMETIC = {"+", "-", "*", "/"};
+
+    private SyntheticInputs() {}
+
+    // -------------------------------------------------------------------------
+    // Automata
+    // -------------------------------------------------------------------------
+
+    /**
+     * NFA over {a,b} for "the n-th symbol from the end is an a" — n + 1 states,
+     * never dies on {a,b} input, and its DFA has 2^n states.
+     */
+    public static FiniteAutomaton nthFromEnd(int n) {
+        Set<String> states = new HashSet<>();
+        Map<String, Map<Character, Set<String>>> delta = new HashMap<>();
+        for (int i = 0; i <= n; i++) {
+            states.add("p" + i);
+            delta.put("p" + i, new HashMap<>());
+        }
+        delta.get("p0").put('a', new HashSet<>(Arrays.asList("p0", "p1")));
+        delta.get("p0").put('b', new HashSet<>(Collections.singletonList("p0")));
+        for (int i = 1; i < n; i++) {
+            delta.get("p" + i).put('a', new HashSet<>(Collections.singletonList("p" + (i + 1))));
+            delta.get("p" + i).put('b', new HashSet<>(Collections.singletonList("p" + (i + 1))));
+        }
+        return new FiniteAutomaton(states, new HashSet<>(Arrays.asList('a', 'b')), delta, "p0",
+                new HashSet<>(Collections.singletonList("p" + n)));
+    }
+
+    /** NFA for Sigma* keyword Sigma* over {a,b,c,d}. */
+    public static FiniteAutomaton containsKeyword(String keyword) {
+        Set<Character> sigma = new HashSet<>(Arrays.asList('a', 'b', 'c', 'd'));
+        Set<String> states = new HashSet<>();
+        Map<String, Map<Character, Set<String>>> delta = new HashMap<>();
+        for (int i = 0; i <= keyword.length(); i++) {
+            states.add("k" + i);
+            delta.put("k" + i, new HashMap<>());
+        }
+        String last = "k" + keyword.length();
+        for (char c : sigma) {
+            delta.get("k0").put(c, new HashSet<>(Collections.singletonList("k0")));
+            delta.get(last).put(c, new HashSet<>(Collections.singletonList(last)));
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            delta.get("k" + i).computeIfAbsent(keyword.charAt(i), x -> new HashSet<>()).add("k" + (i + 1));
+        }
+        return new FiniteAutomaton(states, sigma, delta, "k0", new HashSet<>(Collections.singletonList(last)));
+    }
+
+    /** Random word of {@code length} symbols drawn from the first {@code symbols} letters. */
+    public static String randomWord(Random random, int length, int symbols) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append((char) ('a' + random.nextInt(symbols)));
+        return sb.toString();
+    }
+
+    // -------------------------------------------------------------------------
+    // Financial DSL programs (lab3 lexer / lab6 parser)
+    // -------------------------------------------------------------------------
+
+    /** A syntactically valid program of {@code statements} top-level statements. */
+    public static String program(Random random, int statements) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            switch (random.nextInt(4)) {
+                case 0 -> sb.append("if ").append(expression(random, 2))
+                        .append(' ').append(pick(random, COMPARISONS)).append(' ')
+                        .append(expression(random, 2))
+                        .append(" then ").append(call(random))
+                        .append(" else ").append(call(random)).append(";\n");
+                case 1 -> sb.append(call(random)).append(";\n");
+                default -> sb.append(random.nextBoolean() ? pick(random, KEYWORDS) : "v" + random.nextInt(100))
+                        .append(" = ").append(expression(random, 3)).append(";\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String call(Random random) {
+        return pick(random, CALLS) + "(" + expression(random, 2) + ")";
+    }
+
+    private static String expression(Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) return operand(random);
+        String left = expression(random, depth - 1);
+        String right = expression(random, depth - 1);
+        String e = left + " " + pick(random, ARITHMETIC) + " " + right;
+        return random.nextInt(4) == 0 ? "(" + e + ")" : e;
+    }
+
+    private static String operand(Random random) {
+        return switch (random.nextInt(5)) {
+            case 0 -> String.valueOf(random.nextInt(10_000));
+            case 1 -> random.nextInt(100) + "%";
+            case 2 -> random.nextInt(1000) + "." + random.nextInt(100);
+            case 3 -> "v" + random.nextInt(100);
+            default -> pick(random, KEYWORDS);
+        };
+    }
+
+    private static String pick(Random random, String[] options) {
+        return options[random.nextInt(options.length)];
+    }
+
+    // -------------------------------------------------------------------------
+    // Context-free grammars (lab5 CNF conversion)
+    // -------------------------------------------------------------------------
+
+    /**
+     * Random CFG with {@code nonTerminals} non-terminals N0..Nn-1 over {a,b,c}.
+     * Every non-terminal has a terminal-only alternative (so all are productive),
+     * Ni -> x Ni+1 (so all are accessible from N0), plus a few random mixed
+     * alternatives, some of them ε or unit productions.
+     */
+    public static CFGrammar grammar(Random random, int nonTerminals) {
+        List<String> vn = new ArrayList<>();
+        for (int i = 0; i < nonTerminals; i++) vn.add("N" + i);
+        List<String> vt = Arrays.asList("a", "b", "c");
+
+        Map<String, List<List<String>>> p = new LinkedHashMap<>();
+        for (int i = 0; i < nonTerminals; i++) {
+            List<List<String>> alts = new ArrayList<>();
+            alts.add(Collections.singletonList(vt.get(random.nextInt(vt.size()))));
+            if (i + 1 < nonTerminals) {
+                alts.add(Arrays.asList(vt.get(random.nextInt(vt.size())), vn.get(i + 1)));
+            }
+            int extra = 1 + random.nextInt(3);
+            for (int a = 0; a < extra; a++) {
+                int length = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(4);
+                List<String> rhs = new ArrayList<>();
+                for (int s = 0; s < length; s++) {
+                    rhs.add(random.nextBoolean()
+                            ? vt.get(random.nextInt(vt.size()))
+                            : vn.get(random.nextInt(vn.size())));
+                }
+                alts.add(rhs);
+            }
+            p.put(vn.get(i), alts);
+        }
+        return new CFGrammar(new LinkedHashSet<>(vn), new LinkedHashSet<>(vt), p, "N0");
+    }
+}
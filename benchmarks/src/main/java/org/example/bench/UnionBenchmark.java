@@ -0,0 +1,63 @@
+package org.example.bench;
+
+import org.example.FiniteAutomaton;
+import org.example.MultiAutomaton;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link MultiAutomaton} pass versus N sequential
+ * {@link FiniteAutomaton#stringBelongToLanguage} calls over the same inputs.
+ * Each automaton accepts the strings over {a,b,c,d} containing a random keyword;
+ * keyword automata stay accepting once matched, so the product grows quickly
+ * (about 47k states for 12 of them).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnionBenchmark {
+
+    @Param({"4", "12"})
+    public int automata;
+
+    @Param({"200"})
+    public int inputSize;
+
+    private List<FiniteAutomaton> fas;
+    private MultiAutomaton union;
+    private String[] inputs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        fas = new ArrayList<>();
+        for (int i = 0; i < automata; i++) {
+            fas.add(SyntheticInputs.containsKeyword(SyntheticInputs.randomWord(random, 3 + random.nextInt(3), 4)));
+        }
+        union = MultiAutomaton.of(fas);
+        inputs = new String[64];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = SyntheticInputs.randomWord(random, inputSize, 4);
+        }
+    }
+
+    @Benchmark
+    public void sequential(Blackhole bh) {
+        for (String s : inputs) {
+            for (FiniteAutomaton fa : fas) bh.consume(fa.stringBelongToLanguage(s));
+        }
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh) {
+        for (String s : inputs) bh.consume(union.matchMask(s));
+    }
+}
@@ -0,0 +1,61 @@
+package org.example;
+
+/**
+ * Resumable matcher: holds the current automaton state between calls, so input
+ * can be fed chunk by chunk as it arrives without concatenating or re-scanning
+ * earlier chunks.
+ *
+ * Once the matcher is dead (after some character no accepting state is
+ * reachable: it had no transition, or it led only into trap states) further
+ * input is ignored and {@link #rejectOffset()} reports where it died. Matchers are not
+ * thread-safe; {@link #snapshot()} / {@link #restore} are cheap, so one matcher
+ * can backtrack to an earlier point instead of starting over.
+ */
+public interface AutomatonMatcher {
+
+    /** Opaque saved state of a matcher; only valid for the matcher that produced it. */
+    interface Snapshot {}
+
+    /**
+     * Consumes {@code input[off, off + len)}.
+     * @return false if the matcher is dead after this chunk
+     */
+    boolean feed(char[] input, int off, int len);
+
+    /**
+     * Consumes {@code input[off, off + len)}.
+     * @return false if the matcher is dead after this chunk
+     */
+    boolean feed(CharSequence input, int off, int len);
+
+    default boolean feed(CharSequence input) {
+        return feed(input, 0, input.length());
+    }
+
+    /** True if the input consumed so far is in the language. */
+    boolean isAccepting();
+
+    /** True if no accepting continuation is reachable from the current state set. */
+    boolean isDead();
+
+    /** Number of characters consumed (up to and including the one that killed the matcher). */
+    long position();
+
+    /**
+     * Offset of the character that killed the matcher (0 if the start state
+     * can reach no accepting state), or -1 while alive.
+     */
+    long rejectOffset();
+
+    /** Back to the start state, position 0. */
+    void reset();
+
+    Snapshot snapshot();
+
+    void restore(Snapshot snapshot);
+
+    /** Accept/reject of the input so far, in the same shape as the streaming API. */
+    default StreamMatchResult result() {
+        return new StreamMatchResult(isAccepting(), isDead() ? rejectOffset() : position());
+    }
+}
@@ -0,0 +1,26 @@
+package org.example;
+
+/** Counts and rejected-line offsets produced by {@link LineBatchValidator}. */
+public final class BatchValidationResult {
+    private final long accepted;
+    private final long rejected;
+    private final long[] rejectedLineOffsets;
+
+    BatchValidationResult(long accepted, long rejected, long[] rejectedLineOffsets) {
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.rejectedLineOffsets = rejectedLineOffsets;
+    }
+
+    public long getLines()    { return accepted + rejected; }
+    public long getAccepted() { return accepted; }
+    public long getRejected() { return rejected; }
+
+    /** Byte offsets (from the start of the file) of every rejected line, ascending. */
+    public long[] getRejectedLineOffsets() { return rejectedLineOffsets.clone(); }
+
+    @Override
+    public String toString() {
+        return String.format("%d lines: %d accepted, %d rejected", getLines(), accepted, rejected);
+    }
+}
@@ -0,0 +1,198 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Bit-parallel simulation of a (possibly nondeterministic) {@link FiniteAutomaton}.
+ *
+ * The set of active states is a bitset: a single {@code long} when the automaton
+ * has at most 64 states, otherwise a {@code long[]} of {@code words} words.
+ * For every (state, symbol) pair the successor set is precomputed as a mask, so
+ * one input step is just OR-ing the masks of the active states. States that
+ * cannot reach a final state are masked out of every successor set up front,
+ * so a state set becomes empty as soon as the input can no longer be accepted
+ * (trap states included), not only on a missing transition. Matching never
+ * determinizes, so it also works for automata whose subset construction blows up.
+ *
+ * Instances are immutable and safe to share between threads. {@link #matches}
+ * allocates at most two scratch arrays per call (none for &le; 64 states) and
+ * nothing per input character.
+ */
+public final class BitParallelNfa {
+
+    private final char[] alphabet;     // symbol id -> symbol (sorted)
+    private final int[] symbolIds;     // symbol -> symbol id, -1 if not in the alphabet
+    private final int stateCount;
+    private final int words;           // longs per state set
+    private final long[] successors;   // ((state * k) + symbol id) * words -> live successor mask
+    private final long[] accepting;    // final-state mask
+    private final boolean startLive;   // q0 can reach a final state
+    private final String[] stateNames; // state -> original name
+
+    BitParallelNfa(char[] alphabet, int stateCount, long[] successors,
+                   long[] accepting, String[] stateNames) {
+        this.alphabet = alphabet;
+        this.stateCount = stateCount;
+        this.words = wordsFor(stateCount);
+        this.accepting = accepting;
+        this.stateNames = stateNames;
+
+        long[] live = liveStates(stateCount, alphabet.length, words, successors, accepting);
+        this.successors = successors.clone();
+        for (int i = 0; i < this.successors.length; i++) {
+            this.successors[i] &= live[i % words];
+        }
+        this.startLive = (live[0] & 1L) != 0;
+
+        int maxSymbol = -1;
+        for (char c : alphabet) maxSymbol = Math.max(maxSymbol, c);
+        this.symbolIds = new int[maxSymbol + 1];
+        Arrays.fill(symbolIds, -1);
+        for (int i = 0; i < alphabet.length; i++) {
+            symbolIds[alphabet[i]] = i;
+        }
+    }
+
+    /** Mask of the states that can reach a final state: backward BFS over the reversed transitions. */
+    private static long[] liveStates(int n, int k, int words, long[] successors, long[] accepting) {
+        int[] predStart = new int[n + 1];
+        for (int s = 0; s < n; s++) {
+            for (int i = s * k * words, end = (s + 1) * k * words; i < end; i++) {
+                for (long bits = successors[i]; bits != 0; bits &= bits - 1) {
+                    predStart[((i % words) << 6) + Long.numberOfTrailingZeros(bits) + 1]++;
+                }
+            }
+        }
+        for (int t = 0; t < n; t++) predStart[t + 1] += predStart[t];
+        int[] preds = new int[predStart[n]];
+        int[] fill = Arrays.copyOf(predStart, n);
+        for (int s = 0; s < n; s++) {
+            for (int i = s * k * words, end = (s + 1) * k * words; i < end; i++) {
+                for (long bits = successors[i]; bits != 0; bits &= bits - 1) {
+                    preds[fill[((i % words) << 6) + Long.numberOfTrailingZeros(bits)]++] = s;
+                }
+            }
+        }
+
+        long[] live = new long[words];
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int s = 0; s < n; s++) {
+            if ((accepting[s >>> 6] & (1L << s)) != 0) {
+                live[s >>> 6] |= 1L << s;
+                queue[tail++] = s;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int t = queue[head];
+            for (int i = predStart[t]; i < predStart[t + 1]; i++) {
+                int s = preds[i];
+                if ((live[s >>> 6] & (1L << s)) == 0) {
+                    live[s >>> 6] |= 1L << s;
+                    queue[tail++] = s;
+                }
+            }
+        }
+        return live;
+    }
+
+    /** Number of {@code long} words needed for a bitset over {@code n} states. */
+    static int wordsFor(int n) {
+        return Math.max(1, (n + 63) >>> 6);
+    }
+
+    // return true if accepts the string
+    public boolean matches(CharSequence input) {
+        return words == 1 ? matchesSingleWord(input) : matchesMultiWord(input);
+    }
+
+    // <= 64 states: the whole state set lives in one register
+    private boolean matchesSingleWord(CharSequence input) {
+        final int k = alphabet.length;
+        long current = 1L; // {q0}
+        for (int i = 0, n = input.length(); i < n; i++) {
+            int sym = symbolId(input.charAt(i));
+            if (sym < 0) return false;
+
+            long next = 0L;
+            for (long bits = current; bits != 0; bits &= bits - 1) {
+                int s = Long.numberOfTrailingZeros(bits);
+                next |= successors[s * k + sym];
+            }
+            if (next == 0L) return false;
+            current = next;
+        }
+        return (current & accepting[0]) != 0;
+    }
+
+    private boolean matchesMultiWord(CharSequence input) {
+        long[] current = new long[words];
+        long[] next = new long[words];
+        current[0] = 1L; // {q0}
+
+        for (int i = 0, n = input.length(); i < n; i++) {
+            int sym = symbolId(input.charAt(i));
+            if (sym < 0) return false;
+            if (!step(current, sym, next)) return false;
+
+            long[] tmp = current;
+            current = next;
+            next = tmp;
+        }
+        return intersects(current, accepting);
+    }
+
+    /** Resumable matcher positioned at {q0}, for chunked input. */
+    public NfaMatcher matcher() {
+        return new NfaMatcher(this);
+    }
+
+    /**
+     * Computes {@code next = delta(current, symbolId)} in place.
+     * Returns false when the resulting state set is empty: no final state is
+     * reachable any more, so the input is rejected.
+     */
+    boolean step(long[] current, int symbolId, long[] next) {
+        Arrays.fill(next, 0L);
+        final int k = alphabet.length;
+        long any = 0L;
+        for (int w = 0; w < words; w++) {
+            for (long bits = current[w]; bits != 0; bits &= bits - 1) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(bits);
+                int base = (s * k + symbolId) * words;
+                for (int j = 0; j < words; j++) {
+                    next[j] |= successors[base + j];
+                }
+            }
+        }
+        for (int j = 0; j < words; j++) any |= next[j];
+        return any != 0L;
+    }
+
+    /** False if no final state is reachable even from q0: every input is rejected. */
+    boolean startLive() {
+        return startLive;
+    }
+
+    boolean isAccepting(long[] stateSet) {
+        return intersects(stateSet, accepting);
+    }
+
+    private static boolean intersects(long[] a, long[] b) {
+        for (int w = 0; w < a.length; w++) {
+            if ((a[w] & b[w]) != 0) return true;
+        }
+        return false;
+    }
+
+    /** Dense index of {@code ch} in the alphabet, or -1 if it is not a symbol. */
+    public int symbolId(char ch) {
+        return ch < symbolIds.length ? symbolIds[ch] : -1;
+    }
+
+    public int stateCount()          { return stateCount; }
+    public int words()               { return words; }
+    public int alphabetSize()        { return alphabet.length; }
+    public char symbol(int symbolId) { return alphabet[symbolId]; }
+    public String stateName(int s)   { return stateNames[s]; }
+}
@@ -0,0 +1,238 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Table-driven form of a deterministic {@link FiniteAutomaton}.
+ *
+ * States are interned to dense ints {@code 0..n-1} (the start state is always 0)
+ * and input symbols to a dense alphabet index, so the whole transition function
+ * is one flat {@code int[]} indexed as {@code state * alphabetSize + symbol}.
+ * Missing transitions hold {@link #DEAD}. States from which no accepting
+ * state is reachable (trap states, e.g. the sink of a completed DFA) are
+ * found once at construction; matchers and the streaming API treat entering
+ * one like a missing transition.
+ *
+ * Instances are immutable and safe to share between threads; {@link #matches}
+ * does not allocate.
+ */
+public final class CompiledAutomaton {
+
+    /** Sentinel for "no transition" / the implicit rejecting sink state. */
+    public static final int DEAD = -1;
+
+    private final char[] alphabet;      // symbol id -> symbol (sorted)
+    private final int[] symbolIds;      // symbol -> symbol id, DEAD if not in the alphabet
+    private final int[] table;          // state * alphabet.length + symbol id -> state
+    private final boolean[] accepting;  // state -> is final
+    private final boolean[] live;       // state -> some accepting state is reachable from it
+    private final IntFunction<String> namer; // state -> readable name, built on demand
+
+    CompiledAutomaton(char[] alphabet, int[] table, boolean[] accepting, IntFunction<String> namer) {
+        this.alphabet = alphabet;
+        this.table = table;
+        this.accepting = accepting;
+        this.namer = namer;
+
+        int maxSymbol = -1;
+        for (char c : alphabet) maxSymbol = Math.max(maxSymbol, c);
+        this.symbolIds = new int[maxSymbol + 1];
+        Arrays.fill(symbolIds, DEAD);
+        for (int i = 0; i < alphabet.length; i++) {
+            symbolIds[alphabet[i]] = i;
+        }
+        this.live = liveStates(table, accepting, alphabet.length);
+    }
+
+    /** Backward BFS from the accepting states over the reversed transitions. */
+    private static boolean[] liveStates(int[] table, boolean[] accepting, int k) {
+        int n = accepting.length;
+        int[] predStart = new int[n + 1];
+        for (int t : table) if (t >= 0) predStart[t + 1]++;
+        for (int i = 0; i < n; i++) predStart[i + 1] += predStart[i];
+        int[] preds = new int[predStart[n]];
+        int[] fill = Arrays.copyOf(predStart, n);
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] >= 0) preds[fill[table[i]]++] = i / k;
+        }
+
+        boolean[] live = new boolean[n];
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int s = 0; s < n; s++) {
+            if (accepting[s]) {
+                live[s] = true;
+                queue[tail++] = s;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int t = queue[head];
+            for (int i = predStart[t]; i < predStart[t + 1]; i++) {
+                if (!live[preds[i]]) {
+                    live[preds[i]] = true;
+                    queue[tail++] = preds[i];
+                }
+            }
+        }
+        return live;
+    }
+
+    // return true if accepts the string
+    public boolean matches(CharSequence input) {
+        final int k = alphabet.length;
+        int state = 0;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char ch = input.charAt(i);
+            if (ch >= symbolIds.length) return false;
+            int sym = symbolIds[ch];
+            if (sym < 0) return false;
+            state = table[state * k + sym];
+            if (state < 0) return false;
+        }
+        return accepting[state];
+    }
+
+    // -------------------------------------------------------------------------
+    // Streaming: the input is pulled through one reusable buffer and reading
+    // stops at the first character after which no accepting state is
+    // reachable, whether it had no transition or led into a trap state.
+    // -------------------------------------------------------------------------
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    public StreamMatchResult match(Reader in) throws IOException {
+        return match(in, new char[DEFAULT_BUFFER_SIZE]);
+    }
+
+    public StreamMatchResult match(Reader in, char[] buffer) throws IOException {
+        if (buffer.length == 0) throw new IllegalArgumentException("Buffer must not be empty");
+        DfaMatcher m = matcher();
+        int n;
+        while (!m.isDead() && (n = in.read(buffer, 0, buffer.length)) != -1) {
+            m.feed(buffer, 0, n);
+        }
+        return m.result();
+    }
+
+    /** Bytes are taken as ISO-8859-1, one byte per symbol; use a Reader for other charsets. */
+    public StreamMatchResult match(InputStream in) throws IOException {
+        return match(in, new byte[DEFAULT_BUFFER_SIZE]);
+    }
+
+    public StreamMatchResult match(InputStream in, byte[] buffer) throws IOException {
+        if (buffer.length == 0) throw new IllegalArgumentException("Buffer must not be empty");
+        if (!live[0]) return new StreamMatchResult(false, 0);
+        int state = 0;
+        long offset = 0;
+        int n;
+        while ((n = in.read(buffer, 0, buffer.length)) != -1) {
+            for (int i = 0; i < n; i++) {
+                state = step(state, (char) (buffer[i] & 0xFF));
+                if (!isLive(state)) return new StreamMatchResult(false, offset + i);
+            }
+            offset += n;
+        }
+        return new StreamMatchResult(accepting[state], offset);
+    }
+
+    /** Bytes are taken as ISO-8859-1, one byte per symbol. */
+    public StreamMatchResult match(ReadableByteChannel in) throws IOException {
+        return match(in, ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE));
+    }
+
+    public StreamMatchResult match(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() == 0) throw new IllegalArgumentException("Buffer must not be empty");
+        if (!live[0]) return new StreamMatchResult(false, 0);
+        int state = 0;
+        long offset = 0;
+        buffer.clear();
+        while (in.read(buffer) != -1) {
+            buffer.flip();
+            int n = buffer.remaining();
+            for (int i = 0; i < n; i++) {
+                state = step(state, (char) (buffer.get() & 0xFF));
+                if (!isLive(state)) return new StreamMatchResult(false, offset + i);
+            }
+            offset += n;
+            buffer.clear();
+        }
+        return new StreamMatchResult(accepting[state], offset);
+    }
+
+    /** Resumable matcher positioned at the start state, for chunked input. */
+    public DfaMatcher matcher() {
+        return new DfaMatcher(this);
+    }
+
+    /** One transition on a raw character; returns {@link #DEAD} if there is none. */
+    public int step(int state, char ch) {
+        if (state < 0 || ch >= symbolIds.length) return DEAD;
+        int sym = symbolIds[ch];
+        return sym < 0 ? DEAD : table[state * alphabet.length + sym];
+    }
+
+    /** Dense index of {@code ch} in the alphabet, or {@link #DEAD} if it is not a symbol. */
+    public int symbolId(char ch) {
+        return ch < symbolIds.length ? symbolIds[ch] : DEAD;
+    }
+
+    /** Transition on an already-resolved symbol id. */
+    public int transition(int state, int symbolId) {
+        return table[state * alphabet.length + symbolId];
+    }
+
+    public int startState()           { return 0; }
+    public int stateCount()           { return accepting.length; }
+    public int alphabetSize()         { return alphabet.length; }
+    public char symbol(int symbolId)  { return alphabet[symbolId]; }
+    public boolean isAccepting(int s) { return s >= 0 && accepting[s]; }
+    /** True if some accepting state is reachable from {@code s}; false for {@link #DEAD}. */
+    public boolean isLive(int s)      { return s >= 0 && live[s]; }
+    public String stateName(int s)    { return namer.apply(s); }
+
+    char[] alphabet()  { return alphabet; }
+    int[] table()      { return table; }
+    boolean[] accepting() { return accepting; }
+
+    // -------------------------------------------------------------------------
+    // Minimization (Hopcroft partition refinement)
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the minimal DFA accepting the same language. States that cannot
+     * reach an accepting state collapse into {@link #DEAD}.
+     */
+    public CompiledAutomaton minimize() {
+        return HopcroftMinimizer.minimize(this);
+    }
+
+    /** Converts back to the map-based representation, naming states via {@link #stateName}. */
+    public FiniteAutomaton toFiniteAutomaton() {
+        int n = stateCount();
+        int k = alphabet.length;
+        String[] names = new String[n];
+        for (int s = 0; s < n; s++) names[s] = stateName(s);
+
+        Set<String> states = new HashSet<>(Arrays.asList(names));
+        Set<Character> sigma = new HashSet<>();
+        for (char c : alphabet) sigma.add(c);
+        Set<String> finals = new HashSet<>();
+        Map<String, Map<Character, Set<String>>> delta = new HashMap<>();
+        for (int s = 0; s < n; s++) {
+            if (accepting[s]) finals.add(names[s]);
+            Map<Character, Set<String>> trans = new HashMap<>();
+            for (int a = 0; a < k; a++) {
+                int t = table[s * k + a];
+                if (t != DEAD) trans.put(alphabet[a], new HashSet<>(Collections.singleton(names[t])));
+            }
+            delta.put(names[s], trans);
+        }
+        return new FiniteAutomaton(states, sigma, delta, names[0], finals);
+    }
+}
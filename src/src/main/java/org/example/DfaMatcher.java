@@ -0,0 +1,88 @@
+package org.example;
+
+/**
+ * {@link AutomatonMatcher} over a {@link CompiledAutomaton}: the whole matcher
+ * state is one int plus the input position, so snapshots are two words.
+ * Entering a state that cannot reach an accepting state kills the matcher
+ * just like a missing transition does.
+ */
+public final class DfaMatcher implements AutomatonMatcher {
+    private final CompiledAutomaton dfa;
+    private int state;
+    private long position;
+
+    DfaMatcher(CompiledAutomaton dfa) {
+        this.dfa = dfa;
+        reset();
+    }
+
+    @Override
+    public boolean feed(char[] input, int off, int len) {
+        if (state < 0) return false;
+        int s = state;
+        for (int i = off, end = off + len; i < end; i++) {
+            s = dfa.step(s, input[i]);
+            if (!dfa.isLive(s)) {
+                position += i - off + 1;
+                state = CompiledAutomaton.DEAD;
+                return false;
+            }
+        }
+        position += len;
+        state = s;
+        return true;
+    }
+
+    @Override
+    public boolean feed(CharSequence input, int off, int len) {
+        if (state < 0) return false;
+        int s = state;
+        for (int i = off, end = off + len; i < end; i++) {
+            s = dfa.step(s, input.charAt(i));
+            if (!dfa.isLive(s)) {
+                position += i - off + 1;
+                state = CompiledAutomaton.DEAD;
+                return false;
+            }
+        }
+        position += len;
+        state = s;
+        return true;
+    }
+
+    @Override public boolean isAccepting() { return dfa.isAccepting(state); }
+    @Override public boolean isDead()      { return state < 0; }
+    @Override public long position()       { return position; }
+    @Override public long rejectOffset()   { return state < 0 ? Math.max(position - 1, 0) : -1; }
+
+    /** Current DFA state id, or {@link CompiledAutomaton#DEAD}. */
+    public int state() { return state; }
+
+    @Override
+    public void reset() {
+        state = dfa.isLive(dfa.startState()) ? dfa.startState() : CompiledAutomaton.DEAD;
+        position = 0;
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        return new DfaSnapshot(state, position);
+    }
+
+    @Override
+    public void restore(Snapshot snapshot) {
+        DfaSnapshot s = (DfaSnapshot) snapshot;
+        state = s.state;
+        position = s.position;
+    }
+
+    private static final class DfaSnapshot implements Snapshot {
+        final int state;
+        final long position;
+
+        DfaSnapshot(int state, long position) {
+            this.state = state;
+            this.position = position;
+        }
+    }
+}
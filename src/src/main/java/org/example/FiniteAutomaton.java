@@ -11,6 +11,8 @@ public class FiniteAutomaton {
     private final String q0; // start state
     private final Set<String> F; // final states
 
+    private volatile CompiledAutomaton compiled; // built on first streaming match
+
     public FiniteAutomaton(Set<String> Q,
                            Set<Character> Sigma,
                            Map<String, Map<Character, Set<String>>> delta,
@@ -64,6 +66,30 @@ public class FiniteAutomaton {
         return false;
     }
 
+    // -------------------------------------------------------------------------
+    // Streaming membership: the input never has to fit in memory. Byte sources
+    // are read as ISO-8859-1 (one byte = one symbol). The result carries the
+    // offset of the first character after which acceptance became impossible;
+    // reading stops right there.
+    // -------------------------------------------------------------------------
+    public StreamMatchResult match(java.io.Reader in) throws java.io.IOException {
+        return compiled().match(in);
+    }
+
+    public StreamMatchResult match(java.io.InputStream in) throws java.io.IOException {
+        return compiled().match(in);
+    }
+
+    public StreamMatchResult match(java.nio.channels.ReadableByteChannel in) throws java.io.IOException {
+        return compiled().match(in);
+    }
+
+    private CompiledAutomaton compiled() {
+        CompiledAutomaton c = compiled;
+        if (c == null) compiled = c = compile();
+        return c;
+    }
+
     public void printTransitions() {
         System.out.println("Transitions:");
         List<String> sortedStates = new ArrayList<>(delta.keySet());
@@ -128,66 +154,152 @@ public class FiniteAutomaton {
 
     // -------------------------------------------------------------------------
     // Task 3c: Convert NDFA -> DFA using the subset-construction algorithm
+    // Each DFA state represents a *set* of NFA states, named as a sorted,
+    // comma-joined string, e.g.  "{A,B,C}"
     // -------------------------------------------------------------------------
     public FiniteAutomaton toDFA() {
-        // Each DFA state represents a *set* of NFA states; we encode it as a
-        // sorted, comma-joined string, e.g.  "{A,B,C}"
-        Map<Set<String>, String> stateNames = new LinkedHashMap<>();
-        Map<String, Map<Character, Set<String>>> dfaDelta = new LinkedHashMap<>();
-        Set<String> dfaFinal = new HashSet<>();
-
-        Set<String> startSet = new HashSet<>();
-        startSet.add(q0);
-        String startName = encode(startSet);
-        stateNames.put(startSet, startName);
-
-        Queue<Set<String>> worklist = new ArrayDeque<>();
-        worklist.add(startSet);
-
-        while (!worklist.isEmpty()) {
-            Set<String> current = worklist.poll();
-            String currentName = stateNames.get(current);
-            dfaDelta.put(currentName, new HashMap<>());
-
-            // Check if this DFA state contains any NFA final state
-            for (String nfaState : current) {
-                if (F.contains(nfaState)) {
-                    dfaFinal.add(currentName);
-                    break;
+        return determinize(SubsetConstruction.DEFAULT_MAX_STATES).toFiniteAutomaton();
+    }
+
+    /**
+     * Subset construction straight to the table form. State sets are keyed as
+     * bitsets and only named on demand, so this is the variant to use for large
+     * NFAs. Throws {@link SubsetConstruction.StateLimitExceededException} if more
+     * than {@code maxStates} DFA states are needed.
+     */
+    public CompiledAutomaton determinize(int maxStates) {
+        return SubsetConstruction.determinize(compileNfa(), maxStates);
+    }
+
+    /**
+     * Lazy DFA over this automaton: subset states are built only as input
+     * reaches them and at most {@code cacheCapacity} are kept. Not thread-safe.
+     */
+    public LazyDfa lazyDfa(int cacheCapacity) {
+        return new LazyDfa(compileNfa(), cacheCapacity);
+    }
+
+    // -------------------------------------------------------------------------
+    // Compiled form: states interned to dense ints (BFS order from q0, so the
+    // start state is 0), symbols to a dense alphabet index, and transitions in
+    // one flat int[] table. Nondeterministic automata go through determinize().
+    // -------------------------------------------------------------------------
+    public CompiledAutomaton compile() {
+        if (!isDeterministic()) return determinize(SubsetConstruction.DEFAULT_MAX_STATES);
+
+        List<Character> symbols = new ArrayList<>(Sigma);
+        Collections.sort(symbols);
+        char[] alphabet = new char[symbols.size()];
+        for (int i = 0; i < alphabet.length; i++) alphabet[i] = symbols.get(i);
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> order = new ArrayList<>();
+        ids.put(q0, 0);
+        order.add(q0);
+
+        // First pass only discovers states, so the table can be sized exactly
+        for (int i = 0; i < order.size(); i++) {
+            Map<Character, Set<String>> trans = delta.get(order.get(i));
+            if (trans == null) continue;
+            for (char symbol : alphabet) {
+                Set<String> to = trans.get(symbol);
+                if (to == null || to.isEmpty()) continue;
+                String target = to.iterator().next();
+                if (!ids.containsKey(target)) {
+                    ids.put(target, order.size());
+                    order.add(target);
                 }
             }
+        }
 
-            for (char symbol : Sigma) {
-                Set<String> reachable = new HashSet<>();
-                for (String nfaState : current) {
-                    Map<Character, Set<String>> trans = delta.get(nfaState);
-                    if (trans != null && trans.containsKey(symbol)) {
-                        reachable.addAll(trans.get(symbol));
-                    }
+        int n = order.size();
+        int k = alphabet.length;
+        int[] table = new int[n * k];
+        Arrays.fill(table, CompiledAutomaton.DEAD);
+        boolean[] accepting = new boolean[n];
+        for (int s = 0; s < n; s++) {
+            String name = order.get(s);
+            accepting[s] = F.contains(name);
+            Map<Character, Set<String>> trans = delta.get(name);
+            if (trans == null) continue;
+            for (int a = 0; a < k; a++) {
+                Set<String> to = trans.get(alphabet[a]);
+                if (to != null && !to.isEmpty()) {
+                    table[s * k + a] = ids.get(to.iterator().next());
                 }
-                if (reachable.isEmpty()) continue;
+            }
+        }
+
+        String[] names = order.toArray(new String[0]);
+        return new CompiledAutomaton(alphabet, table, accepting, s -> names[s]);
+    }
+
+    // -------------------------------------------------------------------------
+    // Minimal DFA (Hopcroft) back in map form; merged states are named by the
+    // set of states they replace, e.g. "{{q1},{q3}}"
+    // -------------------------------------------------------------------------
+    public FiniteAutomaton minimize() {
+        return compile().minimize().toFiniteAutomaton();
+    }
 
-                if (!stateNames.containsKey(reachable)) {
-                    String newName = encode(reachable);
-                    stateNames.put(reachable, newName);
-                    worklist.add(reachable);
+    public int stateCount() {
+        return Q.size();
+    }
+
+    // -------------------------------------------------------------------------
+    // Bit-parallel NFA: states interned to bit positions (BFS order from q0, so
+    // the start state is bit 0) with one successor mask per (state, symbol).
+    // No determinization, so no subset blow-up.
+    // -------------------------------------------------------------------------
+    public BitParallelNfa compileNfa() {
+        List<Character> symbols = new ArrayList<>(Sigma);
+        Collections.sort(symbols);
+        char[] alphabet = new char[symbols.size()];
+        for (int i = 0; i < alphabet.length; i++) alphabet[i] = symbols.get(i);
+
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> order = new ArrayList<>();
+        ids.put(q0, 0);
+        order.add(q0);
+        for (int i = 0; i < order.size(); i++) {
+            Map<Character, Set<String>> trans = delta.get(order.get(i));
+            if (trans == null) continue;
+            for (char symbol : alphabet) {
+                Set<String> to = trans.get(symbol);
+                if (to == null) continue;
+                List<String> sortedTo = new ArrayList<>(to);
+                Collections.sort(sortedTo);
+                for (String target : sortedTo) {
+                    if (!ids.containsKey(target)) {
+                        ids.put(target, order.size());
+                        order.add(target);
+                    }
                 }
-                String targetName = stateNames.get(reachable);
-                dfaDelta.get(currentName)
-                        .computeIfAbsent(symbol, k -> new HashSet<>())
-                        .add(targetName);
             }
         }
 
-        Set<String> dfaStates = new HashSet<>(stateNames.values());
-        return new FiniteAutomaton(dfaStates, new HashSet<>(Sigma), dfaDelta, startName, dfaFinal);
-    }
+        int n = order.size();
+        int k = alphabet.length;
+        int words = BitParallelNfa.wordsFor(n);
+        long[] successors = new long[n * k * words];
+        long[] accepting = new long[words];
+        for (int s = 0; s < n; s++) {
+            String name = order.get(s);
+            if (F.contains(name)) accepting[s >>> 6] |= 1L << s;
+            Map<Character, Set<String>> trans = delta.get(name);
+            if (trans == null) continue;
+            for (int a = 0; a < k; a++) {
+                Set<String> to = trans.get(alphabet[a]);
+                if (to == null) continue;
+                int base = (s * k + a) * words;
+                for (String target : to) {
+                    int t = ids.get(target);
+                    successors[base + (t >>> 6)] |= 1L << t;
+                }
+            }
+        }
 
-    /** Encodes a set of NFA states as a readable DFA state name, e.g. "{A,B}". */
-    private static String encode(Set<String> states) {
-        List<String> sorted = new ArrayList<>(states);
-        Collections.sort(sorted);
-        return "{" + String.join(",", sorted) + "}";
+        return new BitParallelNfa(alphabet, n, successors, accepting, order.toArray(new String[0]));
     }
 
     // -------------------------------------------------------------------------
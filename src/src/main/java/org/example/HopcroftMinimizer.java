@@ -0,0 +1,208 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Hopcroft's O(n·k·log n) DFA minimization over the int-indexed states of a
+ * {@link CompiledAutomaton}.
+ *
+ * Missing transitions are completed with an explicit sink state so the
+ * refinement runs on a total DFA; the block containing the sink (i.e. every
+ * state that cannot reach acceptance) is mapped back to {@link CompiledAutomaton#DEAD}.
+ *
+ * The partition is kept in flat arrays: {@code elems} lists the states grouped
+ * by block, {@code loc} is each state's index in {@code elems}, and a block is
+ * the slice {@code [first, end)} whose leading {@code marked} entries are the
+ * states marked during the current splitter round.
+ */
+final class HopcroftMinimizer {
+
+    private HopcroftMinimizer() {}
+
+    static CompiledAutomaton minimize(CompiledAutomaton dfa) {
+        final int n = dfa.stateCount();
+        final int k = dfa.alphabetSize();
+        final int[] table = dfa.table();
+        final boolean[] accepting = dfa.accepting();
+
+        // -- complete the DFA: state n is the sink ------------------------------
+        final int total = n + 1;
+        final int sink = n;
+
+        // -- inverse transitions, CSR-encoded by (symbol, target) ---------------
+        int[] invStart = new int[k * total + 1];
+        for (int s = 0; s < total; s++) {
+            for (int a = 0; a < k; a++) {
+                invStart[a * total + target(table, s, a, k, n) + 1]++;
+            }
+        }
+        for (int i = 1; i < invStart.length; i++) invStart[i] += invStart[i - 1];
+        int[] invSrc = new int[total * k];
+        int[] fill = Arrays.copyOf(invStart, invStart.length - 1);
+        for (int s = 0; s < total; s++) {
+            for (int a = 0; a < k; a++) {
+                invSrc[fill[a * total + target(table, s, a, k, n)]++] = s;
+            }
+        }
+
+        // -- initial partition: {accepting} / {rest, including the sink} --------
+        int[] elems = new int[total];
+        int[] loc = new int[total];
+        int[] blockOf = new int[total];
+        int[] first = new int[total];
+        int[] end = new int[total];
+        int[] marked = new int[total];
+        int blocks = 0;
+
+        int idx = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            boolean wantAccepting = pass == 0;
+            int start = idx;
+            for (int s = 0; s < total; s++) {
+                boolean acc = s < n && accepting[s];
+                if (acc != wantAccepting) continue;
+                elems[idx] = s;
+                loc[s] = idx++;
+                blockOf[s] = blocks;
+            }
+            if (idx > start) {
+                first[blocks] = start;
+                end[blocks] = idx;
+                blocks++;
+            }
+        }
+
+        // -- worklist of (block, symbol) splitters ------------------------------
+        boolean[] inWork = new boolean[total * Math.max(k, 1)];
+        int[] work = new int[16];
+        int workSize = 0;
+        if (blocks == 2) {
+            int smaller = size(first, end, 0) <= size(first, end, 1) ? 0 : 1;
+            for (int a = 0; a < k; a++) {
+                if (workSize == work.length) work = Arrays.copyOf(work, workSize * 2);
+                work[workSize++] = smaller * k + a;
+                inWork[smaller * k + a] = true;
+            }
+        }
+
+        int[] preds = new int[total];
+        int[] touched = new int[total];
+
+        while (workSize > 0) {
+            int splitter = work[--workSize];
+            inWork[splitter] = false;
+            int b = splitter / k;
+            int a = splitter % k;
+
+            // Collect a-predecessors of block b before marking, since marking
+            // reorders elems (possibly inside b itself).
+            int predCount = 0;
+            for (int i = first[b]; i < end[b]; i++) {
+                int t = elems[i];
+                int key = a * total + t;
+                for (int j = invStart[key]; j < invStart[key + 1]; j++) {
+                    preds[predCount++] = invSrc[j];
+                }
+            }
+
+            // Mark: move each predecessor to the front of its block
+            int touchedCount = 0;
+            for (int p = 0; p < predCount; p++) {
+                int s = preds[p];
+                int c = blockOf[s];
+                int boundary = first[c] + marked[c];
+                int i = loc[s];
+                if (i < boundary) continue;
+                if (marked[c] == 0) touched[touchedCount++] = c;
+                int other = elems[boundary];
+                elems[boundary] = s;
+                loc[s] = boundary;
+                elems[i] = other;
+                loc[other] = i;
+                marked[c]++;
+            }
+
+            // Split every block that was only partially marked
+            for (int t = 0; t < touchedCount; t++) {
+                int c = touched[t];
+                int m = marked[c];
+                marked[c] = 0;
+                if (m == end[c] - first[c]) continue;
+
+                int d = blocks++;
+                first[d] = first[c];
+                end[d] = first[c] + m;
+                first[c] = end[d];
+                for (int i = first[d]; i < end[d]; i++) blockOf[elems[i]] = d;
+
+                int smaller = size(first, end, d) <= size(first, end, c) ? d : c;
+                for (int sym = 0; sym < k; sym++) {
+                    int add = inWork[c * k + sym] ? d : smaller;
+                    int key = add * k + sym;
+                    if (inWork[key]) continue;
+                    if (workSize == work.length) work = Arrays.copyOf(work, workSize * 2);
+                    work[workSize++] = key;
+                    inWork[key] = true;
+                }
+            }
+        }
+
+        // -- build the quotient automaton in BFS order from the start block -----
+        int deadBlock = blockOf[sink];
+        int[] newId = new int[blocks];
+        Arrays.fill(newId, CompiledAutomaton.DEAD);
+        int[] order = new int[blocks];
+        int count = 0;
+        newId[blockOf[0]] = count;
+        order[count++] = blockOf[0];
+        for (int i = 0; i < count; i++) {
+            int rep = elems[first[order[i]]];
+            for (int a = 0; a < k; a++) {
+                int tb = blockOf[target(table, rep, a, k, n)];
+                if (tb != deadBlock && newId[tb] == CompiledAutomaton.DEAD) {
+                    newId[tb] = count;
+                    order[count++] = tb;
+                }
+            }
+        }
+
+        int[] newTable = new int[count * k];
+        boolean[] newAccepting = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            int rep = elems[first[order[i]]];
+            newAccepting[i] = rep < n && accepting[rep];
+            for (int a = 0; a < k; a++) {
+                int tb = blockOf[target(table, rep, a, k, n)];
+                newTable[i * k + a] = tb == deadBlock ? CompiledAutomaton.DEAD : newId[tb];
+            }
+        }
+
+        // Names are only assembled if someone asks (printing / DOT export)
+        final int[] blockFirst = first;
+        final int[] blockEnd = end;
+        final int[] members = elems;
+        final int[] blockOrder = Arrays.copyOf(order, count);
+        return new CompiledAutomaton(dfa.alphabet(), newTable, newAccepting, s -> {
+            int blk = blockOrder[s];
+            int[] ids = Arrays.stream(members, blockFirst[blk], blockEnd[blk])
+                    .filter(x -> x != sink).sorted().toArray();
+            if (ids.length == 1) return dfa.stateName(ids[0]);
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(dfa.stateName(ids[i]));
+            }
+            return sb.append('}').toString();
+        });
+    }
+
+    private static int target(int[] table, int s, int a, int k, int sink) {
+        if (s == sink) return sink;
+        int t = table[s * k + a];
+        return t == CompiledAutomaton.DEAD ? sink : t;
+    }
+
+    private static int size(int[] first, int[] end, int b) {
+        return end[b] - first[b];
+    }
+}
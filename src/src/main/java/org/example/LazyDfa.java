@@ -0,0 +1,187 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * On-the-fly determinization of a {@link BitParallelNfa}.
+ *
+ * DFA states (NFA state sets) and their transitions are only computed when the
+ * input actually reaches them, and are kept in a cache of at most
+ * {@code capacity} states. When the cache is full a victim is picked with the
+ * clock (second-chance) algorithm. Transitions into an evicted slot are not
+ * searched for and cleared; instead every slot carries a generation number and
+ * a cached transition is only trusted if it was recorded for the slot's
+ * current generation.
+ *
+ * If the cache thrashes on an input (more evictions than the cache holds, while
+ * each miss advances fewer than {@link #MIN_CHARS_PER_MISS} characters) the
+ * rest of that input is run as a plain bit-parallel NFA simulation instead.
+ *
+ * Unlike {@link CompiledAutomaton}, a LazyDfa mutates its cache while matching
+ * and is NOT thread-safe; use one instance per thread.
+ */
+public final class LazyDfa {
+
+    /** Below this many input characters per cache miss, a thrashing cache is abandoned. */
+    public static final int MIN_CHARS_PER_MISS = 10;
+
+    private static final int UNKNOWN = -2;
+    private static final int DEAD = CompiledAutomaton.DEAD;
+    private static final int START = 0; // the start state is pinned to slot 0
+
+    private final BitParallelNfa nfa;
+    private final int capacity;
+    private final int words;
+    private final int k;
+
+    private final long[] sets;          // slot * words -> NFA state set
+    private final boolean[] accepting;  // slot -> contains an NFA final state
+    private final int[] generation;     // slot -> bumped on every eviction
+    private final boolean[] referenced; // slot -> clock "second chance" bit
+    private final int[] trans;          // slot * k + symbol id -> slot, DEAD or UNKNOWN
+    private final int[] transGen;       // generation of the target when trans was recorded
+    private final StateSetIndex index;
+    private int used = 0;
+    private int hand = 1;
+
+    private final long[] current;
+    private final long[] next;
+
+    private long hits, misses, evictions, fallbacks;
+
+    public LazyDfa(BitParallelNfa nfa, int capacity) {
+        // slot 0 is pinned and one slot is always busy, so a sweep needs a third
+        if (capacity < 3) throw new IllegalArgumentException("capacity must be at least 3");
+        this.nfa = nfa;
+        this.capacity = capacity;
+        this.words = nfa.words();
+        this.k = nfa.alphabetSize();
+        this.sets = new long[capacity * words];
+        this.accepting = new boolean[capacity];
+        this.generation = new int[capacity];
+        this.referenced = new boolean[capacity];
+        this.trans = new int[capacity * k];
+        this.transGen = new int[capacity * k];
+        Arrays.fill(trans, UNKNOWN);
+        this.index = new StateSetIndex(words);
+        this.current = new long[words];
+        this.next = new long[words];
+
+        current[0] = 1L; // {q0}
+        store(START, current);
+        used = 1;
+    }
+
+    // return true if accepts the string
+    public boolean matches(CharSequence input) {
+        int slot = START;
+        long missesHere = 0;
+        long evictionsHere = 0;
+
+        for (int i = 0, n = input.length(); i < n; i++) {
+            int sym = nfa.symbolId(input.charAt(i));
+            if (sym < 0) return false;
+
+            int e = slot * k + sym;
+            int t = trans[e];
+            if (t == DEAD) {
+                hits++;
+                return false;
+            }
+            if (t >= 0 && transGen[e] == generation[t]) {
+                hits++;
+                referenced[t] = true;
+                slot = t;
+                continue;
+            }
+
+            // Miss: step the NFA set of this slot and look the result up
+            misses++;
+            missesHere++;
+            System.arraycopy(sets, slot * words, current, 0, words);
+            if (!nfa.step(current, sym, next)) {
+                trans[e] = DEAD;
+                return false;
+            }
+            t = index.find(next, sets);
+            if (t < 0) {
+                if (used == capacity) {
+                    t = evict(slot);
+                    evictionsHere++;
+                } else {
+                    t = used++;
+                }
+                store(t, next);
+            }
+            trans[e] = t;
+            transGen[e] = generation[t];
+            referenced[t] = true;
+            slot = t;
+
+            if (evictionsHere > capacity && (i + 1) < MIN_CHARS_PER_MISS * missesHere) {
+                fallbacks++;
+                return simulate(input, i + 1);
+            }
+        }
+        return accepting[slot];
+    }
+
+    /** Finishes the input as a plain NFA simulation, starting from the set in {@code next}. */
+    private boolean simulate(CharSequence input, int from) {
+        long[] cur = Arrays.copyOf(next, words);
+        long[] nxt = new long[words];
+        for (int i = from, n = input.length(); i < n; i++) {
+            int sym = nfa.symbolId(input.charAt(i));
+            if (sym < 0 || !nfa.step(cur, sym, nxt)) return false;
+            long[] tmp = cur;
+            cur = nxt;
+            nxt = tmp;
+        }
+        return nfa.isAccepting(cur);
+    }
+
+    /** Clock sweep for a victim; never the start slot or the slot being stepped from. */
+    private int evict(int busy) {
+        while (true) {
+            int v = hand;
+            hand = hand + 1 == capacity ? 1 : hand + 1;
+            if (v == busy) continue;
+            if (referenced[v]) {
+                referenced[v] = false;
+                continue;
+            }
+            index.remove(v, sets);
+            generation[v]++;
+            Arrays.fill(trans, v * k, (v + 1) * k, UNKNOWN);
+            evictions++;
+            return v;
+        }
+    }
+
+    private void store(int slot, long[] set) {
+        System.arraycopy(set, 0, sets, slot * words, words);
+        accepting[slot] = nfa.isAccepting(set);
+        index.insert(slot, sets);
+    }
+
+    // -------------------------------------------------------------------------
+    // Cache statistics
+    // -------------------------------------------------------------------------
+
+    public long hits()        { return hits; }
+    public long misses()      { return misses; }
+    public long evictions()   { return evictions; }
+    public long fallbacks()   { return fallbacks; }
+    public int cachedStates() { return used; }
+    public int capacity()     { return capacity; }
+
+    public void resetStatistics() {
+        hits = misses = evictions = fallbacks = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LazyDfa[states=%d/%d, hits=%d, misses=%d, evictions=%d, fallbacks=%d]",
+                used, capacity, hits, misses, evictions, fallbacks);
+    }
+}
@@ -0,0 +1,183 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Checks every line of a newline-delimited file against a {@link CompiledAutomaton}.
+ *
+ * The file is split into line-aligned chunks of roughly {@code chunkSize} bytes;
+ * each chunk is memory-mapped with {@link FileChannel#map} and matched on its own
+ * worker, straight from the mapped bytes (no decoding to {@code String}). This
+ * requires an ASCII alphabet, so a byte is a symbol. A trailing {@code '\r'} is
+ * dropped from each line unless {@code '\r'} is itself a symbol.
+ *
+ * The compiled automaton is immutable, so one validator can be shared and
+ * reused for any number of files.
+ */
+public final class LineBatchValidator {
+
+    public static final long DEFAULT_CHUNK_SIZE = 64L << 20; // 64 MiB
+
+    private static final int NONE = -1;
+
+    private final CompiledAutomaton dfa;
+    private final int[] byteSymbols = new int[256]; // byte -> symbol id, NONE if not a symbol
+    private final boolean stripCarriageReturn;
+    private final long chunkSize;
+
+    public LineBatchValidator(CompiledAutomaton dfa) {
+        this(dfa, DEFAULT_CHUNK_SIZE);
+    }
+
+    public LineBatchValidator(CompiledAutomaton dfa, long chunkSize) {
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunkSize must be in [1, 2^31 - 1]");
+        }
+        Arrays.fill(byteSymbols, NONE);
+        for (int a = 0; a < dfa.alphabetSize(); a++) {
+            char c = dfa.symbol(a);
+            if (c > 127) {
+                throw new IllegalArgumentException(
+                        "Byte-level validation needs an ASCII alphabet, found '" + c + "'");
+            }
+            byteSymbols[c] = a;
+        }
+        if (byteSymbols['\n'] != NONE) {
+            throw new IllegalArgumentException("'\\n' cannot be both a symbol and the line separator");
+        }
+        this.dfa = dfa;
+        this.stripCarriageReturn = byteSymbols['\r'] == NONE;
+        this.chunkSize = chunkSize;
+    }
+
+    /** Validates {@code file} on the common fork-join pool. */
+    public BatchValidationResult validate(Path file) throws IOException {
+        return validate(file, ForkJoinPool.commonPool());
+    }
+
+    public BatchValidationResult validate(Path file, ExecutorService executor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Callable<ChunkResult>> tasks = new ArrayList<>();
+            for (long[] range : split(channel)) {
+                long start = range[0];
+                long length = range[1];
+                tasks.add(() -> scan(channel.map(FileChannel.MapMode.READ_ONLY, start, length), start));
+            }
+
+            long accepted = 0;
+            long rejected = 0;
+            List<long[]> offsets = new ArrayList<>();
+            int totalOffsets = 0;
+            for (Future<ChunkResult> f : executor.invokeAll(tasks)) {
+                ChunkResult r = f.get();
+                accepted += r.accepted;
+                rejected += r.rejectedCount;
+                offsets.add(r.rejected);
+                totalOffsets += r.rejectedCount;
+            }
+
+            long[] all = new long[totalOffsets];
+            int pos = 0;
+            for (long[] o : offsets) {
+                System.arraycopy(o, 0, all, pos, o.length);
+                pos += o.length;
+            }
+            return new BatchValidationResult(accepted, rejected, all);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while validating " + file, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException("Failed to validate " + file, e.getCause());
+        }
+    }
+
+    /** Chunk boundaries as {start, length} pairs; every chunk but the last ends just after a '\n'. */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            // extend to the end of the line that straddles the boundary
+            while (end < size) {
+                probe.clear();
+                int n = channel.read(probe, end);
+                if (n < 0) throw new IOException("File shrank below " + size + " bytes while being split");
+                int nl = -1;
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == '\n') {
+                        nl = i;
+                        break;
+                    }
+                }
+                if (nl >= 0) {
+                    end += nl + 1;
+                    break;
+                }
+                end += n;
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line starting near offset " + start + " does not fit in one mapping");
+            }
+            ranges.add(new long[] {start, end - start});
+            start = end;
+        }
+        return ranges;
+    }
+
+    private ChunkResult scan(MappedByteBuffer buf, long base) {
+        final int limit = buf.limit();
+        ChunkResult result = new ChunkResult();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int state = dfa.startState();
+            int i = lineStart;
+            byte b = 0;
+            // match until the end of the line or the first dead transition
+            for (; i < limit && (b = buf.get(i)) != '\n'; i++) {
+                int sym = byteSymbols[b & 0xFF];
+                if (sym == NONE) {
+                    if (b == '\r' && stripCarriageReturn && (i + 1 == limit || buf.get(i + 1) == '\n')) {
+                        continue;
+                    }
+                    state = CompiledAutomaton.DEAD;
+                    break;
+                }
+                state = dfa.transition(state, sym);
+                if (state < 0) break;
+            }
+            if (dfa.isAccepting(state)) {
+                result.accepted++;
+            } else {
+                result.reject(base + lineStart);
+            }
+            // skip the rest of a rejected line
+            while (i < limit && buf.get(i) != '\n') i++;
+            lineStart = i + 1;
+        }
+        result.rejected = Arrays.copyOf(result.rejected, result.rejectedCount);
+        return result;
+    }
+
+    private static final class ChunkResult {
+        long accepted;
+        int rejectedCount;
+        long[] rejected = new long[16];
+
+        void reject(long offset) {
+            if (rejectedCount == rejected.length) rejected = Arrays.copyOf(rejected, rejectedCount * 2);
+            rejected[rejectedCount++] = offset;
+        }
+    }
+}
@@ -46,5 +46,15 @@ public class Main {
             boolean ok = fa.stringBelongToLanguage(t);
             System.out.println(" " + t + " -> " + ok);
         }
+
+        System.out.println("\n Streaming membership (Reader):");
+        for(String t : tests){
+            try {
+                StreamMatchResult r = fa.match(new java.io.StringReader(t));
+                System.out.println(" " + t + " -> " + r);
+            } catch (java.io.IOException e) {
+                System.err.println("Error reading input: " + e.getMessage());
+            }
+        }
     }
 }
\ No newline at end of file
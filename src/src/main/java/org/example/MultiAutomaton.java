@@ -0,0 +1,141 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * Product DFA of up to 64 automata, answering all their membership questions
+ * in a single pass over the input.
+ *
+ * A product state is the tuple of component DFA states; it is alive while at
+ * least one component is alive. Each state carries a bitmask with bit
+ * {@code i} set iff component {@code i} accepts there, so
+ * {@link #matchMask(CharSequence)} returns which automata accept the input.
+ * Only product states reachable from the start tuple are built.
+ */
+public final class MultiAutomaton {
+
+    public static final int MAX_AUTOMATA = 64;
+
+    private final int size;            // number of component automata
+    private final char[] alphabet;     // union alphabet, symbol id -> symbol
+    private final int[] symbolIds;     // symbol -> symbol id, -1 if no component knows it
+    private final int[] table;         // state * k + symbol id -> state, DEAD if every component is dead
+    private final long[] acceptMasks;  // state -> which components accept
+
+    private MultiAutomaton(int size, char[] alphabet, int[] table, long[] acceptMasks) {
+        this.size = size;
+        this.alphabet = alphabet;
+        this.table = table;
+        this.acceptMasks = acceptMasks;
+
+        int maxSymbol = -1;
+        for (char c : alphabet) maxSymbol = Math.max(maxSymbol, c);
+        this.symbolIds = new int[maxSymbol + 1];
+        Arrays.fill(symbolIds, -1);
+        for (int i = 0; i < alphabet.length; i++) symbolIds[alphabet[i]] = i;
+    }
+
+    public static MultiAutomaton of(List<FiniteAutomaton> automata) {
+        return of(automata, SubsetConstruction.DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Builds the product of {@code automata} (bit {@code i} of every mask refers to
+     * {@code automata.get(i)}). Throws {@link SubsetConstruction.StateLimitExceededException}
+     * if more than {@code maxStates} product states are reachable.
+     */
+    public static MultiAutomaton of(List<FiniteAutomaton> automata, int maxStates) {
+        int n = automata.size();
+        if (n == 0 || n > MAX_AUTOMATA) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_AUTOMATA + " automata are supported, got " + n);
+        }
+        CompiledAutomaton[] dfas = new CompiledAutomaton[n];
+        for (int i = 0; i < n; i++) dfas[i] = automata.get(i).compile();
+
+        // Union alphabet and, per component, union symbol id -> component symbol id
+        TreeSet<Character> symbols = new TreeSet<>();
+        for (CompiledAutomaton d : dfas) {
+            for (int a = 0; a < d.alphabetSize(); a++) symbols.add(d.symbol(a));
+        }
+        char[] alphabet = new char[symbols.size()];
+        int idx = 0;
+        for (char c : symbols) alphabet[idx++] = c;
+        int k = alphabet.length;
+        int[][] localSym = new int[n][k];
+        for (int i = 0; i < n; i++) {
+            for (int a = 0; a < k; a++) localSym[i][a] = dfas[i].symbolId(alphabet[a]);
+        }
+
+        // Tuples are stored as (component state + 1) so DEAD becomes 0
+        StateSetIndex index = new StateSetIndex(n);
+        long[] tuples = new long[64 * n];
+        int[] table = new int[64 * k];
+        int count = 0;
+
+        long[] tuple = new long[n];
+        for (int i = 0; i < n; i++) tuple[i] = dfas[i].startState() + 1;
+        System.arraycopy(tuple, 0, tuples, 0, n);
+        index.insert(count++, tuples);
+
+        long[] next = new long[n];
+        for (int s = 0; s < count; s++) {
+            System.arraycopy(tuples, s * n, tuple, 0, n);
+            for (int a = 0; a < k; a++) {
+                boolean alive = false;
+                for (int i = 0; i < n; i++) {
+                    int cs = (int) tuple[i] - 1;
+                    int sym = localSym[i][a];
+                    int t = cs < 0 || sym < 0 ? CompiledAutomaton.DEAD : dfas[i].transition(cs, sym);
+                    next[i] = t + 1;
+                    alive |= t >= 0;
+                }
+                int target = CompiledAutomaton.DEAD;
+                if (alive) {
+                    target = index.find(next, tuples);
+                    if (target < 0) {
+                        if (count == maxStates) throw new SubsetConstruction.StateLimitExceededException(maxStates);
+                        if ((count + 1) * n > tuples.length) {
+                            tuples = Arrays.copyOf(tuples, tuples.length * 2);
+                            table = Arrays.copyOf(table, table.length * 2);
+                        }
+                        target = count++;
+                        System.arraycopy(next, 0, tuples, target * n, n);
+                        index.insert(target, tuples);
+                    }
+                }
+                table[s * k + a] = target;
+            }
+        }
+
+        long[] masks = new long[count];
+        for (int s = 0; s < count; s++) {
+            long mask = 0L;
+            for (int i = 0; i < n; i++) {
+                if (dfas[i].isAccepting((int) tuples[s * n + i] - 1)) mask |= 1L << i;
+            }
+            masks[s] = mask;
+        }
+        return new MultiAutomaton(n, alphabet, Arrays.copyOf(table, count * k), masks);
+    }
+
+    /** Bit {@code i} is set iff automaton {@code i} accepts {@code input}. */
+    public long matchMask(CharSequence input) {
+        final int k = alphabet.length;
+        int state = 0;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char ch = input.charAt(i);
+            int sym = ch < symbolIds.length ? symbolIds[ch] : -1;
+            if (sym < 0) return 0L;
+            state = table[state * k + sym];
+            if (state < 0) return 0L;
+        }
+        return acceptMasks[state];
+    }
+
+    public boolean matches(int automaton, CharSequence input) {
+        return (matchMask(input) & (1L << automaton)) != 0;
+    }
+
+    public int size()       { return size; }
+    public int stateCount() { return acceptMasks.length; }
+}
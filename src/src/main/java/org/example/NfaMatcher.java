@@ -0,0 +1,90 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * {@link AutomatonMatcher} over a {@link BitParallelNfa}: the matcher state is
+ * the active-state bitset, double-buffered so feeding never allocates.
+ * The NFA only ever yields live states, so an empty set means no accepting
+ * state is reachable any more.
+ */
+public final class NfaMatcher implements AutomatonMatcher {
+    private final BitParallelNfa nfa;
+    private long[] current;
+    private long[] next;
+    private boolean dead;
+    private long position;
+
+    NfaMatcher(BitParallelNfa nfa) {
+        this.nfa = nfa;
+        this.current = new long[nfa.words()];
+        this.next = new long[nfa.words()];
+        reset();
+    }
+
+    @Override
+    public boolean feed(char[] input, int off, int len) {
+        for (int i = off, end = off + len; i < end && !dead; i++) {
+            advance(input[i]);
+        }
+        return !dead;
+    }
+
+    @Override
+    public boolean feed(CharSequence input, int off, int len) {
+        for (int i = off, end = off + len; i < end && !dead; i++) {
+            advance(input.charAt(i));
+        }
+        return !dead;
+    }
+
+    private void advance(char ch) {
+        position++;
+        int sym = nfa.symbolId(ch);
+        if (sym < 0 || !nfa.step(current, sym, next)) {
+            dead = true;
+            return;
+        }
+        long[] tmp = current;
+        current = next;
+        next = tmp;
+    }
+
+    @Override public boolean isAccepting() { return !dead && nfa.isAccepting(current); }
+    @Override public boolean isDead()      { return dead; }
+    @Override public long position()       { return position; }
+    @Override public long rejectOffset()   { return dead ? Math.max(position - 1, 0) : -1; }
+
+    @Override
+    public void reset() {
+        Arrays.fill(current, 0L);
+        current[0] = 1L; // {q0}
+        dead = !nfa.startLive();
+        position = 0;
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        return new NfaSnapshot(current.clone(), dead, position);
+    }
+
+    @Override
+    public void restore(Snapshot snapshot) {
+        NfaSnapshot s = (NfaSnapshot) snapshot;
+        System.arraycopy(s.states, 0, current, 0, current.length);
+        dead = s.dead;
+        position = s.position;
+    }
+
+    private static final class NfaSnapshot implements Snapshot {
+        final long[] states;
+        final boolean dead;
+        final long position;
+
+        NfaSnapshot(long[] states, boolean dead, long position) {
+            this.states = states;
+            this.dead = dead;
+            this.position = position;
+        }
+    }
+}
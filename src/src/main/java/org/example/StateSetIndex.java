@@ -0,0 +1,93 @@
+package org.example;
+
+/**
+ * Open-addressing (linear probing) hash index from fixed-width {@code long[]}
+ * keys (NFA state sets, product-state tuples) to dense ids.
+ *
+ * Keys are not copied: the sets live in the caller's flat pool
+ * ({@code id * words} longs per set), slots hold {@code id + 1}, and probes
+ * compare against the pool in place, so the index costs one int per slot.
+ * Removal uses backward-shift deletion, so no tombstones build up when a
+ * bounded cache keeps recycling ids.
+ */
+final class StateSetIndex {
+    private final int words;
+    private int[] slots = new int[64]; // 0 = empty, otherwise id + 1
+    private int size = 0;
+
+    StateSetIndex(int words) {
+        this.words = words;
+    }
+
+    /** Id of the set equal to {@code key[0..words)}, or -1 if absent. */
+    int find(long[] key, long[] pool) {
+        int mask = slots.length - 1;
+        for (int i = hash(key, 0) & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) return -1;
+            if (equalsAt(key, pool, slot - 1)) return slot - 1;
+        }
+    }
+
+    /** Indexes the set currently stored for {@code id} in {@code pool}. */
+    void insert(int id, long[] pool) {
+        if (2 * (size + 1) > slots.length) rehash(pool);
+        place(id, pool);
+        size++;
+    }
+
+    /** Unindexes {@code id}; its set must still be in {@code pool}. */
+    void remove(int id, long[] pool) {
+        int mask = slots.length - 1;
+        int i = hash(pool, id * words) & mask;
+        while (slots[i] != id + 1) {
+            if (slots[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+        slots[i] = 0;
+        size--;
+
+        // Shift later members of the probe run back into the hole
+        for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            int home = hash(pool, (slots[j] - 1) * words) & mask;
+            boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {
+                slots[i] = slots[j];
+                slots[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+    private void place(int id, long[] pool) {
+        int mask = slots.length - 1;
+        int i = hash(pool, id * words) & mask;
+        while (slots[i] != 0) i = (i + 1) & mask;
+        slots[i] = id + 1;
+    }
+
+    private void rehash(long[] pool) {
+        int[] old = slots;
+        slots = new int[old.length * 2];
+        for (int slot : old) {
+            if (slot != 0) place(slot - 1, pool);
+        }
+    }
+
+    private boolean equalsAt(long[] key, long[] pool, int id) {
+        int base = id * words;
+        for (int w = 0; w < words; w++) {
+            if (key[w] != pool[base + w]) return false;
+        }
+        return true;
+    }
+
+    private int hash(long[] a, int from) {
+        long h = 0;
+        for (int w = 0; w < words; w++) {
+            h = (h + a[from + w]) * 0x9E3779B97F4A7C15L;
+        }
+        h ^= h >>> 32;
+        return (int) ((h * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
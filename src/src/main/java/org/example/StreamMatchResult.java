@@ -0,0 +1,28 @@
+package org.example;
+
+/**
+ * Outcome of running an automaton over a stream.
+ *
+ * {@code rejectOffset} is -1 when the input was accepted. Otherwise it is the
+ * zero-based offset of the first character (or byte) after which no final
+ * state was reachable, because it had no transition or led into a trap state
+ * (reading stopped there; 0 if the automaton accepts nothing), or the total
+ * input length if the whole input was consumed but ended in a non-final state.
+ */
+public final class StreamMatchResult {
+    private final boolean accepted;
+    private final long rejectOffset;
+
+    StreamMatchResult(boolean accepted, long rejectOffset) {
+        this.accepted = accepted;
+        this.rejectOffset = accepted ? -1 : rejectOffset;
+    }
+
+    public boolean isAccepted()  { return accepted; }
+    public long getRejectOffset() { return rejectOffset; }
+
+    @Override
+    public String toString() {
+        return accepted ? "accepted" : "rejected at offset " + rejectOffset;
+    }
+}
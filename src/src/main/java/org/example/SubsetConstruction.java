@@ -0,0 +1,118 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Subset construction (NFA -> DFA) over the bitset state sets of a {@link BitParallelNfa}.
+ *
+ * Every discovered DFA state is an NFA state set stored as {@code words} longs in
+ * one flat pool, and a custom open-addressing table maps a set to its DFA id
+ * without boxing or building strings. Readable names such as {@code "{q0,q1}"}
+ * are only assembled when {@link CompiledAutomaton#stateName} is called.
+ *
+ * The construction aborts with {@link StateLimitExceededException} as soon as
+ * more than {@code maxStates} DFA states would be needed, instead of running
+ * the heap dry on an exponential blow-up.
+ */
+public final class SubsetConstruction {
+
+    /** Budget used by {@link FiniteAutomaton#toDFA()} and {@link FiniteAutomaton#compile()}. */
+    public static final int DEFAULT_MAX_STATES = 1 << 20;
+
+    private final BitParallelNfa nfa;
+    private final int maxStates;
+    private final int words;
+    private final int k;
+
+    private long[] sets;   // DFA state id * words -> NFA state set
+    private int[] table;   // DFA state id * k + symbol id -> DFA state id
+    private final StateSetIndex index;
+    private int count = 0;
+
+    private SubsetConstruction(BitParallelNfa nfa, int maxStates) {
+        this.nfa = nfa;
+        this.maxStates = maxStates;
+        this.words = nfa.words();
+        this.k = nfa.alphabetSize();
+        int initial = Math.min(maxStates, 64);
+        this.sets = new long[initial * words];
+        this.table = new int[initial * k];
+        this.index = new StateSetIndex(words);
+    }
+
+    public static CompiledAutomaton determinize(BitParallelNfa nfa, int maxStates) {
+        if (maxStates < 1) throw new IllegalArgumentException("maxStates must be positive");
+        return new SubsetConstruction(nfa, maxStates).run();
+    }
+
+    private CompiledAutomaton run() {
+        long[] start = new long[words];
+        start[0] = 1L; // {q0}
+        intern(start);
+
+        long[] current = new long[words];
+        long[] next = new long[words];
+        // DFA ids are handed out in discovery order, so the id itself is the BFS queue
+        for (int s = 0; s < count; s++) {
+            System.arraycopy(sets, s * words, current, 0, words);
+            for (int a = 0; a < k; a++) {
+                // intern() may grow the table, so resolve the target before indexing it
+                int target = nfa.step(current, a, next) ? intern(next) : CompiledAutomaton.DEAD;
+                table[s * k + a] = target;
+            }
+        }
+
+        boolean[] accepting = new boolean[count];
+        long[] set = new long[words];
+        for (int s = 0; s < count; s++) {
+            System.arraycopy(sets, s * words, set, 0, words);
+            accepting[s] = nfa.isAccepting(set);
+        }
+
+        char[] alphabet = new char[k];
+        for (int a = 0; a < k; a++) alphabet[a] = nfa.symbol(a);
+        final long[] pool = Arrays.copyOf(sets, count * words);
+        return new CompiledAutomaton(alphabet, Arrays.copyOf(table, count * k), accepting,
+                s -> describe(pool, s));
+    }
+
+    /** Returns the DFA id of {@code set}, registering it as a new state if unseen. */
+    private int intern(long[] set) {
+        int id = index.find(set, sets);
+        if (id >= 0) return id;
+        if (count == maxStates) throw new StateLimitExceededException(maxStates);
+
+        if ((count + 1) * words > sets.length) {
+            int capacity = (int) Math.min((long) maxStates, Math.max(2L * count, 1L));
+            sets = Arrays.copyOf(sets, capacity * words);
+            table = Arrays.copyOf(table, capacity * k);
+        }
+        id = count++;
+        System.arraycopy(set, 0, sets, id * words, words);
+        index.insert(id, sets);
+        return id;
+    }
+
+    /** Readable name of a DFA state, e.g. "{q0,q1}" (NFA names sorted). */
+    private String describe(long[] pool, int s) {
+        List<String> names = new ArrayList<>();
+        for (int w = 0; w < words; w++) {
+            for (long bits = pool[s * words + w]; bits != 0; bits &= bits - 1) {
+                names.add(nfa.stateName((w << 6) + Long.numberOfTrailingZeros(bits)));
+            }
+        }
+        names.sort(null);
+        return "{" + String.join(",", names) + "}";
+    }
+
+    /** Thrown when a DFA construction needs more states than the configured budget. */
+    public static class StateLimitExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public StateLimitExceededException(int maxStates) {
+            super("DFA construction exceeded the budget of " + maxStates + " states");
+        }
+    }
+}
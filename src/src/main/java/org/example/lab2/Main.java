@@ -1,5 +1,7 @@
 package org.example.lab2;
 
+import org.example.BitParallelNfa;
+import org.example.CompiledAutomaton;
 import org.example.FiniteAutomaton;
 import org.example.Grammar;
 
@@ -75,16 +77,28 @@ public class Main {
         dfa.printTransitions();
         System.out.println("Is deterministic: " + dfa.isDeterministic());
 
+        System.out.println(" 3d. DFA MINIMIZATION (Hopcroft)");
+
+        CompiledAutomaton dfaTable = dfa.compile();
+        CompiledAutomaton minTable = dfaTable.minimize();
+        System.out.println("States before: " + dfaTable.stateCount()
+                + ", after: " + minTable.stateCount());
+        minTable.toFiniteAutomaton().printTransitions();
+
         // Verify equivalence: NDFA and DFA must accept the same strings
-        System.out.println("\nEquivalence check (NDFA vs DFA):");
+        System.out.println("\nEquivalence check (NDFA vs DFA vs compiled table vs bit-parallel NFA):");
+        CompiledAutomaton compiled = ndfa.compile();
+        BitParallelNfa bitNfa = ndfa.compileNfa();
         String[] tests = {"aa", "aaa", "aba", "abaa", "a", "b", "bb", "aab", "aaba", "aaaa"};
-        System.out.printf("  %-10s %-8s %-8s%n", "String", "NDFA", "DFA");
+        System.out.printf("  %-10s %-8s %-8s %-8s %-8s%n", "String", "NDFA", "DFA", "Compiled", "BitNFA");
         for (String t : tests) {
             boolean ndfa_res = ndfa.stringBelongToLanguage(t);
             boolean dfa_res  = dfa.stringBelongToLanguage(t);
-            System.out.printf("  %-10s %-8s %-8s %s%n",
-                    t, ndfa_res, dfa_res,
-                    ndfa_res == dfa_res ? "OK" : "MISMATCH");
+            boolean comp_res = compiled.matches(t);
+            boolean bit_res  = bitNfa.matches(t);
+            System.out.printf("  %-10s %-8s %-8s %-8s %-8s %s%n",
+                    t, ndfa_res, dfa_res, comp_res, bit_res,
+                    ndfa_res == dfa_res && dfa_res == comp_res && comp_res == bit_res ? "OK" : "MISMATCH");
         }
 
         System.out.println(" GRAPH GENERATION");
@@ -0,0 +1,219 @@
+package org.example.lab3;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull-based lexer over a {@link Reader}, producing the same tokens as
+ * {@link Lexer} without ever holding the whole input.
+ *
+ * Characters are read through one sliding buffer: when the scanner runs off
+ * its end, the part belonging to the token in progress is moved to the front
+ * and the rest is refilled, so lexemes may span reads. The buffer only grows
+ * when a single lexeme is longer than it.
+ *
+ * Tokens come out one at a time through {@link #nextToken()} / the iterator,
+ * or by index through {@link TokenStream}, which is how {@code lab6.Parser}
+ * reads them. Only the last {@link #WINDOW} tokens are kept, enough for the
+ * parser's one token of lookahead and one of look-behind; asking for an older
+ * index is an error. I/O failures surface as {@link UncheckedIOException}.
+ */
+public class StreamingLexer implements TokenStream, Iterator<Token> {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** Number of most recent tokens addressable through {@link TokenStream}. */
+    public static final int WINDOW = 4;
+
+    private final Reader in;
+    private char[] buf;
+    private int pos = 0;     // next character to scan
+    private int limit = 0;   // end of valid characters in buf
+    private int mark = 0;    // start of the token in progress; buf[mark..limit) survives a refill
+    private boolean eof = false;
+    private int line = 1;
+    private boolean pendingPercent = false;
+
+    private final Token[] ring = new Token[WINDOW]; // token i lives at ring[i % WINDOW]
+    private int produced = 0;                       // tokens lexed so far
+    private Token eofToken;
+    private int nextIndex = 0;                      // next token handed out by nextToken()
+
+    public StreamingLexer(Reader in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamingLexer(Reader in, int bufferSize) {
+        if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be positive");
+        this.in = in;
+        this.buf = new char[bufferSize];
+    }
+
+    // -------------------------------------------------------------------------
+    // Sequential access
+    // -------------------------------------------------------------------------
+
+    /** Returns the next token; after {@code EOF} it keeps returning {@code EOF}. */
+    public Token nextToken() {
+        return token(nextIndex++);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return eofToken == null || nextIndex < produced;
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return nextToken();
+    }
+
+    // -------------------------------------------------------------------------
+    // TokenStream (indexed, within the window)
+    // -------------------------------------------------------------------------
+
+    @Override public TokenType type(int index) { return token(index).getType(); }
+    @Override public String lexeme(int index)  { return token(index).getLexeme(); }
+    @Override public int line(int index)       { return token(index).getLine(); }
+
+    private Token token(int index) {
+        while (produced <= index) {
+            if (eofToken != null) return eofToken;
+            Token t = lex();
+            ring[produced % WINDOW] = t;
+            produced++;
+            if (t.getType() == TokenType.EOF) eofToken = t;
+        }
+        if (index < produced - WINDOW) {
+            throw new IllegalStateException("token " + index + " is no longer buffered (window "
+                    + WINDOW + ", " + produced + " tokens lexed)");
+        }
+        return ring[index % WINDOW];
+    }
+
+    /** Current capacity of the character buffer. */
+    public int bufferSize() {
+        return buf.length;
+    }
+
+    // -------------------------------------------------------------------------
+    // Scanner (same rules and tables as TableLexer)
+    // -------------------------------------------------------------------------
+
+    private Token lex() {
+        if (pendingPercent) {
+            pendingPercent = false;
+            pos++;
+            return new Token(TokenType.PERCENT, "%", line);
+        }
+        while (true) {
+            mark = pos;
+            int c = peekChar();
+            if (c < 0) return new Token(TokenType.EOF, "EOF", line);
+            switch (TableLexer.classOf((char) c)) {
+                case TableLexer.NEWLINE:
+                    line++;
+                    pos++;
+                    break;
+                case TableLexer.SPACE:
+                    pos++;
+                    break;
+                case TableLexer.LETTER:
+                    return scanIdentifier();
+                case TableLexer.DIGIT:
+                    return scanNumber();
+                default:
+                    return scanOperator((char) c);
+            }
+        }
+    }
+
+    private Token scanIdentifier() {
+        int node = 0;
+        int c;
+        while ((c = peekChar()) >= 0 && TableLexer.isIdentifierPart((char) c)) {
+            node = TableLexer.keywordStep(node, (char) c);
+            pos++;
+        }
+        TokenType t = TableLexer.keywordOrIdentifier(node);
+        return new Token(t, t == TokenType.IDENTIFIER ? text() : TokenBuffer.fixedText(t), line);
+    }
+
+    private Token scanNumber() {
+        skipDigits();
+        TokenType t = TokenType.INTEGER;
+        if (peekChar() == '.') {
+            pos++;
+            int c = peekChar();
+            if (c < 0 || !TableLexer.isDigit((char) c)) {
+                return new Token(TokenType.UNKNOWN, text(), line); // "12." as in Lexer
+            }
+            skipDigits();
+            t = TokenType.FLOAT;
+        }
+        Token number = new Token(t, text(), line);
+        pendingPercent = peekChar() == '%';
+        return number;
+    }
+
+    private void skipDigits() {
+        int c;
+        while ((c = peekChar()) >= 0 && TableLexer.isDigit((char) c)) pos++;
+    }
+
+    private Token scanOperator(char c) {
+        pos++;
+        if (c < 128 && TableLexer.SINGLE[c] != null) {
+            TokenType two = TableLexer.WITH_EQUALS[c];
+            if (two != null && peekChar() == '=') {
+                pos++;
+                return new Token(two, TokenBuffer.fixedText(two), line);
+            }
+            TokenType one = TableLexer.SINGLE[c];
+            return new Token(one, one == TokenType.UNKNOWN ? text() : TokenBuffer.fixedText(one), line);
+        }
+        return new Token(TokenType.UNKNOWN, text(), line);
+    }
+
+    private String text() {
+        return new String(buf, mark, pos - mark);
+    }
+
+    /** The character at {@code pos}, refilling the buffer if needed; -1 at end of input. */
+    private int peekChar() {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos];
+    }
+
+    private boolean fill() {
+        if (eof) return false;
+        if (mark > 0) {
+            System.arraycopy(buf, mark, buf, 0, limit - mark);
+            limit -= mark;
+            pos -= mark;
+            mark = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2); // a single lexeme fills the buffer
+        }
+        try {
+            int n;
+            do {
+                n = in.read(buf, limit, buf.length - limit);
+            } while (n == 0);
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            limit += n;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package org.example.lab3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table-driven, allocation-free variant of {@link Lexer} producing the same tokens.
+ *
+ * ASCII characters are classified through a {@code byte[128]} table instead of
+ * the {@code Character.isXxx} predicates (non-ASCII characters fall back to
+ * them, so the results stay identical), keywords are recognized by stepping a
+ * trie while the identifier is scanned, and operators come from lookup tables.
+ *
+ * The lexer is a cursor: {@link #next()} advances to the following token and
+ * describes it as offsets into the source ({@link #start()}, {@link #length()},
+ * {@link #line()}), so scanning allocates nothing. {@link #lexeme()} and
+ * {@link #tokenize()} materialize strings and {@link Token}s on request.
+ */
+public class TableLexer {
+
+    // -------------------------------------------------------------------------
+    // Character classes (ASCII)
+    // -------------------------------------------------------------------------
+
+    static final byte OTHER = 0;
+    static final byte SPACE = 1;
+    static final byte NEWLINE = 2;
+    static final byte LETTER = 3; // letters and '_'
+    static final byte DIGIT = 4;
+
+    static final byte[] CLASS = new byte[128];
+
+    // single-character token type, and the type when followed by '=' (null if none)
+    static final TokenType[] SINGLE = new TokenType[128];
+    static final TokenType[] WITH_EQUALS = new TokenType[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            if (c == '\n') CLASS[c] = NEWLINE;
+            else if (Character.isWhitespace(c)) CLASS[c] = SPACE;
+            else if (Character.isLetter(c) || c == '_') CLASS[c] = LETTER;
+            else if (Character.isDigit(c)) CLASS[c] = DIGIT;
+        }
+
+        SINGLE['='] = TokenType.ASSIGN;     WITH_EQUALS['='] = TokenType.EQUAL_EQUAL;
+        SINGLE['>'] = TokenType.GREATER;    WITH_EQUALS['>'] = TokenType.GREATER_EQUAL;
+        SINGLE['<'] = TokenType.LESS;       WITH_EQUALS['<'] = TokenType.LESS_EQUAL;
+        SINGLE['!'] = TokenType.UNKNOWN;    WITH_EQUALS['!'] = TokenType.NOT_EQUAL;
+        SINGLE['+'] = TokenType.PLUS;
+        SINGLE['-'] = TokenType.MINUS;
+        SINGLE['*'] = TokenType.MULTIPLY;
+        SINGLE['/'] = TokenType.DIVIDE;
+        SINGLE['('] = TokenType.LPAREN;
+        SINGLE[')'] = TokenType.RPAREN;
+        SINGLE[','] = TokenType.COMMA;
+        SINGLE[';'] = TokenType.SEMICOLON;
+    }
+
+    static byte classOf(char c) {
+        if (c < 128) return CLASS[c];
+        if (Character.isWhitespace(c)) return SPACE;
+        if (Character.isLetter(c)) return LETTER;
+        if (Character.isDigit(c)) return DIGIT;
+        return OTHER;
+    }
+
+    static boolean isIdentifierPart(char c) {
+        if (c < 128) {
+            byte k = CLASS[c];
+            return k == LETTER || k == DIGIT;
+        }
+        return Character.isLetterOrDigit(c);
+    }
+
+    static boolean isDigit(char c) {
+        return c < 128 ? CLASS[c] == DIGIT : Character.isDigit(c);
+    }
+
+    // -------------------------------------------------------------------------
+    // Keyword trie over 'a'..'z': node * 26 + letter -> node, -1 if none.
+    // Node 0 is the root; KEYWORD[node] is the keyword ending there, or null.
+    // -------------------------------------------------------------------------
+
+    static final int[] TRIE;
+    static final TokenType[] KEYWORD;
+
+    static {
+        String[] words = {"income", "expense", "tax", "profit", "loss", "save",
+                "invest", "budget", "if", "then", "else"};
+        TokenType[] types = {TokenType.INCOME, TokenType.EXPENSE, TokenType.TAX, TokenType.PROFIT,
+                TokenType.LOSS, TokenType.SAVE, TokenType.INVEST, TokenType.BUDGET,
+                TokenType.IF, TokenType.THEN, TokenType.ELSE};
+
+        int maxNodes = 1;
+        for (String w : words) maxNodes += w.length();
+        int[] trie = new int[maxNodes * 26];
+        Arrays.fill(trie, -1);
+        TokenType[] keyword = new TokenType[maxNodes];
+        int nodes = 1;
+        for (int i = 0; i < words.length; i++) {
+            int node = 0;
+            for (char c : words[i].toCharArray()) {
+                int e = node * 26 + (c - 'a');
+                if (trie[e] < 0) trie[e] = nodes++;
+                node = trie[e];
+            }
+            keyword[node] = types[i];
+        }
+        TRIE = Arrays.copyOf(trie, nodes * 26);
+        KEYWORD = Arrays.copyOf(keyword, nodes);
+    }
+
+    /** One trie step; -1 once the prefix is no longer a keyword prefix. */
+    static int keywordStep(int node, char c) {
+        if (node < 0 || c < 'a' || c > 'z') return -1;
+        return TRIE[node * 26 + (c - 'a')];
+    }
+
+    static TokenType keywordOrIdentifier(int node) {
+        TokenType k = node >= 0 ? KEYWORD[node] : null;
+        return k != null ? k : TokenType.IDENTIFIER;
+    }
+
+    // -------------------------------------------------------------------------
+    // Cursor
+    // -------------------------------------------------------------------------
+
+    private final CharSequence input;
+    private final int end;
+    private int position;
+    private int line;
+
+    // current token
+    private TokenType type;
+    private int start;
+    private int length;
+    private int tokenLine;
+
+    // a PERCENT directly after a number is emitted as its own token on the next call
+    private boolean pendingPercent;
+
+    public TableLexer(CharSequence input) {
+        this(input, 0, input.length(), 1);
+    }
+
+    /**
+     * Lexes only {@code input[from, to)}, numbering lines from {@code firstLine}.
+     * Offsets reported by {@link #start()} stay relative to the whole input.
+     */
+    public TableLexer(CharSequence input, int from, int to, int firstLine) {
+        if (from < 0 || from > to || to > input.length()) {
+            throw new IndexOutOfBoundsException("range [" + from + ", " + to + ") of " + input.length());
+        }
+        this.input = input;
+        this.position = from;
+        this.end = to;
+        this.line = firstLine;
+    }
+
+    /** Advances to the next token and returns its type; returns {@code EOF} forever at the end. */
+    public TokenType next() {
+        if (pendingPercent) {
+            pendingPercent = false;
+            return set(TokenType.PERCENT, position++, 1);
+        }
+
+        while (position < end) {
+            char c = input.charAt(position);
+            switch (classOf(c)) {
+                case NEWLINE:
+                    line++;
+                    position++;
+                    break;
+                case SPACE:
+                    position++;
+                    break;
+                case LETTER:
+                    return scanIdentifier();
+                case DIGIT:
+                    return scanNumber();
+                default:
+                    return scanOperator(c);
+            }
+        }
+        return set(TokenType.EOF, end, 0);
+    }
+
+    private TokenType scanIdentifier() {
+        int from = position;
+        int node = 0;
+        while (position < end) {
+            char c = input.charAt(position);
+            if (!isIdentifierPart(c)) break;
+            node = keywordStep(node, c);
+            position++;
+        }
+        return set(keywordOrIdentifier(node), from, position - from);
+    }
+
+    private TokenType scanNumber() {
+        int from = position;
+        while (position < end && isDigit(input.charAt(position))) position++;
+
+        TokenType t = TokenType.INTEGER;
+        if (position < end && input.charAt(position) == '.') {
+            position++;
+            if (position < end && isDigit(input.charAt(position))) {
+                while (position < end && isDigit(input.charAt(position))) position++;
+                t = TokenType.FLOAT;
+            } else {
+                // "12." -- no percent check after a malformed number, as in Lexer
+                return set(TokenType.UNKNOWN, from, position - from);
+            }
+        }
+        pendingPercent = position < end && input.charAt(position) == '%';
+        return set(t, from, position - from);
+    }
+
+    private TokenType scanOperator(char c) {
+        int from = position++;
+        if (c < 128 && SINGLE[c] != null) {
+            TokenType two = WITH_EQUALS[c];
+            if (two != null && position < end && input.charAt(position) == '=') {
+                position++;
+                return set(two, from, 2);
+            }
+            return set(SINGLE[c], from, 1);
+        }
+        return set(TokenType.UNKNOWN, from, 1);
+    }
+
+    private TokenType set(TokenType t, int from, int len) {
+        type = t;
+        start = from;
+        length = len;
+        tokenLine = line;
+        return t;
+    }
+
+    public TokenType type() { return type; }
+    public int start()      { return start; }
+    public int length()     { return length; }
+    public int line()       { return tokenLine; }
+
+    /** Text of the current token ({@code "EOF"} for the end marker, as in {@link Lexer}). */
+    public String lexeme() {
+        return type == TokenType.EOF ? "EOF" : input.subSequence(start, start + length).toString();
+    }
+
+    /** Convenience wrapper returning the same list as {@link Lexer#tokenize()}. */
+    public List<Token> tokenize() {
+        List<Token> tokens = new ArrayList<>();
+        TokenType t;
+        do {
+            t = next();
+            tokens.add(new Token(t, lexeme(), tokenLine));
+        } while (t != TokenType.EOF);
+        return tokens;
+    }
+}
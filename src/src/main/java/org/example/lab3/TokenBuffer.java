@@ -0,0 +1,139 @@
+package org.example.lab3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Struct-of-arrays token list: one {@code byte} type and three {@code int}s
+ * (start offset, length, line) per token, 13 bytes in total, instead of a
+ * {@link Token} object plus a lexeme {@code String} each.
+ *
+ * Lexemes are not stored. {@link #lexeme} returns a shared constant for
+ * keywords, operators and {@code EOF}, and only cuts identifiers and numbers
+ * out of the source when asked.
+ */
+public final class TokenBuffer implements TokenStream {
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    // fixed text of every token type whose lexeme never varies, null otherwise
+    private static final String[] TEXT = new String[TYPES.length];
+
+    static {
+        for (TokenType t : List.of(TokenType.INCOME, TokenType.EXPENSE, TokenType.TAX, TokenType.PROFIT,
+                TokenType.LOSS, TokenType.SAVE, TokenType.INVEST, TokenType.BUDGET,
+                TokenType.IF, TokenType.THEN, TokenType.ELSE)) {
+            TEXT[t.ordinal()] = t.name().toLowerCase();
+        }
+        TEXT[TokenType.PERCENT.ordinal()]       = "%";
+        TEXT[TokenType.ASSIGN.ordinal()]        = "=";
+        TEXT[TokenType.PLUS.ordinal()]          = "+";
+        TEXT[TokenType.MINUS.ordinal()]         = "-";
+        TEXT[TokenType.MULTIPLY.ordinal()]      = "*";
+        TEXT[TokenType.DIVIDE.ordinal()]        = "/";
+        TEXT[TokenType.GREATER.ordinal()]       = ">";
+        TEXT[TokenType.LESS.ordinal()]          = "<";
+        TEXT[TokenType.GREATER_EQUAL.ordinal()] = ">=";
+        TEXT[TokenType.LESS_EQUAL.ordinal()]    = "<=";
+        TEXT[TokenType.EQUAL_EQUAL.ordinal()]   = "==";
+        TEXT[TokenType.NOT_EQUAL.ordinal()]     = "!=";
+        TEXT[TokenType.LPAREN.ordinal()]        = "(";
+        TEXT[TokenType.RPAREN.ordinal()]        = ")";
+        TEXT[TokenType.COMMA.ordinal()]         = ",";
+        TEXT[TokenType.SEMICOLON.ordinal()]     = ";";
+        TEXT[TokenType.EOF.ordinal()]           = "EOF";
+    }
+
+    /** Lexeme shared by every token of type {@code t}, or null if it varies (identifiers, numbers, UNKNOWN). */
+    static String fixedText(TokenType t) {
+        return TEXT[t.ordinal()];
+    }
+
+    private final CharSequence source;
+    private byte[] type;
+    private int[] start;
+    private int[] length;
+    private int[] line;
+    private int size;
+
+    TokenBuffer(CharSequence source, int capacity) {
+        this.source = source;
+        capacity = Math.max(capacity, 16);
+        this.type = new byte[capacity];
+        this.start = new int[capacity];
+        this.length = new int[capacity];
+        this.line = new int[capacity];
+    }
+
+    /** Lexes {@code source} with {@link TableLexer}; the last token is always {@code EOF}. */
+    public static TokenBuffer of(CharSequence source) {
+        return of(source, 0, source.length(), 1);
+    }
+
+    /** Lexes {@code source[from, to)} with lines numbered from {@code firstLine}. */
+    public static TokenBuffer of(CharSequence source, int from, int to, int firstLine) {
+        TokenBuffer buffer = new TokenBuffer(source, (to - from) / 4);
+        TableLexer lexer = new TableLexer(source, from, to, firstLine);
+        TokenType t;
+        do {
+            t = lexer.next();
+            buffer.add(t, lexer.start(), lexer.length(), lexer.line());
+        } while (t != TokenType.EOF);
+        return buffer;
+    }
+
+    void add(TokenType t, int tokenStart, int tokenLength, int tokenLine) {
+        if (size == type.length) {
+            int capacity = size * 2;
+            type = Arrays.copyOf(type, capacity);
+            start = Arrays.copyOf(start, capacity);
+            length = Arrays.copyOf(length, capacity);
+            line = Arrays.copyOf(line, capacity);
+        }
+        type[size] = (byte) t.ordinal();
+        start[size] = tokenStart;
+        length[size] = tokenLength;
+        line[size] = tokenLine;
+        size++;
+    }
+
+    public int size() { return size; }
+
+    @Override
+    public TokenType type(int index) {
+        return TYPES[type[Math.min(index, size - 1)]];
+    }
+
+    @Override
+    public int line(int index) {
+        return line[Math.min(index, size - 1)];
+    }
+
+    public int start(int index)  { return start[index]; }
+    public int length(int index) { return length[index]; }
+
+    @Override
+    public String lexeme(int index) {
+        index = Math.min(index, size - 1);
+        String fixed = TEXT[type[index]];
+        if (fixed != null) return fixed;
+        return source.subSequence(start[index], start[index] + length[index]).toString();
+    }
+
+    public Token token(int index) {
+        return new Token(type(index), lexeme(index), line(index));
+    }
+
+    /** The same list {@link Lexer#tokenize()} would return. */
+    public List<Token> toList() {
+        List<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) tokens.add(token(i));
+        return tokens;
+    }
+
+    /** Bytes held by the parallel arrays (capacity, not just {@link #size}). */
+    public long footprintBytes() {
+        return type.length + 4L * (start.length + length.length + line.length);
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.lab3;
+
+import java.util.List;
+
+/**
+ * Index-based view of a token sequence terminated by an {@code EOF} token, as
+ * consumed by the lab 6 parser. Indices past the {@code EOF} token read as that
+ * {@code EOF} token.
+ */
+public interface TokenStream {
+
+    TokenType type(int index);
+
+    String lexeme(int index);
+
+    int line(int index);
+
+    /** Adapts the {@link Lexer#tokenize()} list (which always ends with {@code EOF}). */
+    static TokenStream of(List<Token> tokens) {
+        return new TokenStream() {
+            private Token get(int index) {
+                return tokens.get(Math.min(index, tokens.size() - 1));
+            }
+
+            @Override public TokenType type(int index) { return get(index).getType(); }
+            @Override public String lexeme(int index)  { return get(index).getLexeme(); }
+            @Override public int line(int index)       { return get(index).getLine(); }
+        };
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.lab6;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.ast.ASTNode;
+import org.example.lab6.ast.ProgramNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps a program parsed while its text is edited, re-lexing and re-parsing
+ * only the statements an edit touches.
+ *
+ * As in {@link ParallelParser}, the text is cut right after every {@code ;}.
+ * A {@code ;} is always a token of its own, and every top-level statement ends
+ * with one, so each piece holds exactly one statement. The piece after the
+ * last {@code ;} is the exception: it is usually blank, or an unfinished
+ * statement. Pieces are lexed and parsed independently.
+ *
+ * {@link #edit} replaces a range of text and re-parses only the pieces that
+ * overlap it. When a {@code ;} is typed or deleted, the affected pieces are
+ * re-cut. Every other statement keeps its {@link ASTNode} object, and the
+ * pieces after the edit only have their offsets shifted.
+ *
+ * A piece that fails to parse is remembered as failed. {@link #program()}
+ * throws the same {@link Parser.ParseException}, with the same line, as a full
+ * parse of the current text would. That piece is parsed again to report it,
+ * because lines before it may have changed.
+ */
+public final class IncrementalParser {
+
+    private final StringBuilder text;
+
+    // piece i is text[start[i], start[i + 1]), the last one ends at text.length()
+    private int[] start = new int[16];
+    private ASTNode[] statement = new ASTNode[16]; // null for a blank or failed piece
+    private boolean[] failed = new boolean[16];
+    private int pieces;
+    private int failures;
+
+    private int lastReparsed;
+
+    public IncrementalParser(CharSequence source) {
+        this.text = new StringBuilder(source);
+        reparse(0, 0, 0, text.length(), 0);
+    }
+
+    // -------------------------------------------------------------------------
+    // Queries
+    // -------------------------------------------------------------------------
+
+    public String text()             { return text.toString(); }
+    public int length()              { return text.length(); }
+    public boolean hasErrors()       { return failures > 0; }
+
+    /** Pieces re-lexed and re-parsed by the last {@link #edit} (or the constructor). */
+    public int lastReparsed()        { return lastReparsed; }
+
+    /**
+     * The whole program; unchanged statements are the same objects as before
+     * the edit. Throws the first syntax error if the text does not parse.
+     */
+    public ProgramNode program() {
+        List<ASTNode> stmts = new ArrayList<>(pieces);
+        for (int i = 0; i < pieces; i++) {
+            if (failed[i]) throw error(i);
+            if (statement[i] != null) stmts.add(statement[i]);
+        }
+        return new ProgramNode(stmts);
+    }
+
+    // -------------------------------------------------------------------------
+    // Editing
+    // -------------------------------------------------------------------------
+
+    /** Replaces {@code text[offset, offset + removed)} with {@code inserted}. */
+    public void edit(int offset, int removed, CharSequence inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+            throw new IndexOutOfBoundsException("edit [" + offset + ", " + (offset + removed)
+                    + ") of " + text.length());
+        }
+        // first piece holding a removed or shifted character, and the piece
+        // holding the character just after the edit (whose ';' survives)
+        int first = pieceAt(offset);
+        int last = pieceAt(offset + removed);
+        int from = start[first];
+        int oldTo = end(last);
+
+        text.replace(offset, offset + removed, inserted.toString());
+        int delta = inserted.length() - removed;
+        reparse(first, last + 1, from, oldTo + delta, delta);
+    }
+
+    /**
+     * Cuts {@code text[from, to)} into pieces that replace pieces
+     * {@code [first, end)}, parses them, and shifts the pieces after them by
+     * {@code delta}.
+     */
+    private void reparse(int first, int end, int from, int to, int delta) {
+        int[] starts = new int[4];
+        int n = 0;
+        int s = from;
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == ';') {
+                if (n == starts.length) starts = Arrays.copyOf(starts, n * 2);
+                starts[n++] = s;
+                s = i + 1;
+            }
+        }
+        if (s < to || to == text.length()) { // the piece after the last ';', even if empty
+            if (n == starts.length) starts = Arrays.copyOf(starts, n + 1);
+            starts[n++] = s;
+        }
+        splice(first, end, n, delta);
+        for (int k = 0; k < n; k++) start[first + k] = starts[k];
+        for (int k = 0; k < n; k++) parsePiece(first + k);
+        lastReparsed = n;
+    }
+
+    /** Replaces pieces {@code [first, end)} with {@code n} uninitialized ones and shifts the rest by {@code delta}. */
+    private void splice(int first, int end, int n, int delta) {
+        for (int i = first; i < end; i++) {
+            if (failed[i]) failures--;
+        }
+        int newPieces = pieces - (end - first) + n;
+        if (newPieces > start.length) {
+            int capacity = Math.max(start.length * 2, newPieces);
+            start = Arrays.copyOf(start, capacity);
+            statement = Arrays.copyOf(statement, capacity);
+            failed = Arrays.copyOf(failed, capacity);
+        }
+        int tail = pieces - end;
+        System.arraycopy(start, end, start, first + n, tail);
+        System.arraycopy(statement, end, statement, first + n, tail);
+        System.arraycopy(failed, end, failed, first + n, tail);
+        for (int i = first + n; i < newPieces; i++) start[i] += delta;
+        for (int i = newPieces; i < pieces; i++) statement[i] = null; // drop references when shrinking
+        pieces = newPieces;
+    }
+
+    private void parsePiece(int i) {
+        statement[i] = null;
+        failed[i] = false;
+        try {
+            Parser parser = new Parser(TokenBuffer.of(text, start[i], end(i), 1));
+            statement[i] = parser.nextStatement();
+        } catch (Parser.ParseException e) {
+            failed[i] = true;
+            failures++;
+        }
+    }
+
+    /** Parses a failed piece again with its real first line, for the exception to throw. */
+    private Parser.ParseException error(int i) {
+        int line = 1;
+        for (int k = 0; k < start[i]; k++) {
+            if (text.charAt(k) == '\n') line++;
+        }
+        try {
+            new Parser(TokenBuffer.of(text, start[i], end(i), line)).nextStatement();
+        } catch (Parser.ParseException e) {
+            return e;
+        }
+        throw new IllegalStateException("Piece " + i + " no longer fails");
+    }
+
+    // -------------------------------------------------------------------------
+    // Piece lookup
+    // -------------------------------------------------------------------------
+
+    private int end(int i) {
+        return i + 1 < pieces ? start[i + 1] : text.length();
+    }
+
+    /** The piece holding {@code text[offset]}, or the last piece for {@code offset == length()}. */
+    private int pieceAt(int offset) {
+        int lo = 0;
+        int hi = pieces - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (start[mid] <= offset) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+}
@@ -1,10 +1,29 @@
 package org.example.lab6;
 
 import org.example.lab3.Lexer;
+import org.example.lab3.StreamingLexer;
 import org.example.lab3.Token;
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.ast.AssignNode;
+import org.example.lab6.ast.AstCodec;
+import org.example.lab6.ast.FlatAst;
 import org.example.lab6.ast.ProgramNode;
+import org.example.lab6.eval.BytecodeCompiler;
+import org.example.lab6.eval.ClassFileCompiler;
+import org.example.lab6.eval.ColumnarEvaluator;
+import org.example.lab6.eval.Evaluator;
+import org.example.lab6.eval.JvmProgram;
+import org.example.lab6.eval.Optimizer;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 public class Main {
 
@@ -20,7 +39,7 @@ public class Main {
             if loss > 0 then invest(loss * 50%);
             """;
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("=".repeat(60));
         System.out.println("  Laboratory Work 6: Parser & AST");
         System.out.println("=".repeat(60));
@@ -47,5 +66,128 @@ public class Main {
 
         System.out.println();
         System.out.println("Parsed " + ast.getStatements().size() + " top-level statement(s). ✓");
+
+        // ── Step 4: Same parse over a struct-of-arrays TokenBuffer ────
+        TokenBuffer buffer = TokenBuffer.of(SAMPLE);
+        ProgramNode fromBuffer = new Parser(buffer).parse();
+        System.out.println();
+        System.out.println("── TokenBuffer ──");
+        System.out.println(buffer.size() + " tokens in " + buffer.footprintBytes()
+                + " bytes of arrays; same AST: " + fromBuffer.describe("").equals(ast.describe("")));
+
+        // ── Step 5: Streaming — tokens pulled from a Reader on demand ─
+        ProgramNode streamed = new Parser(new StreamingLexer(new StringReader(SAMPLE), 16)).parse();
+        System.out.println("StreamingLexer with a 16-char buffer; same AST: "
+                + streamed.describe("").equals(ast.describe("")));
+
+        // ── Step 6: Statement-at-a-time — each AST handed to a callback ─
+        long[] assignments = {0};
+        long statements = new Parser(new StreamingLexer(new StringReader(SAMPLE), 16))
+                .parse(stmt -> { if (stmt instanceof AssignNode) assignments[0]++; });
+        System.out.println("Streamed " + statements + " statement(s) to a callback, "
+                + assignments[0] + " of them assignments");
+
+        // ── Step 7: Evaluate ──────────────────────────────────────────
+        Evaluator evaluator = new Evaluator(ast, Map.of(
+                "save",   a -> { System.out.println("  save("   + a[0] + ")"); return a[0]; },
+                "invest", a -> { System.out.println("  invest(" + a[0] + ")"); return a[0]; }));
+        double[] env = evaluator.newEnvironment();
+        System.out.println();
+        System.out.println("── Evaluation ──");
+        evaluator.evaluate(env);
+        for (String name : evaluator.variables().names()) {
+            System.out.println("  " + name + " = " + env[evaluator.variables().slot(name)]);
+        }
+
+        // ── Step 8: Register bytecode for the same program ────────────
+        System.out.println();
+        System.out.println("── Bytecode ──");
+        System.out.print(BytecodeCompiler.compile(ast).disassemble());
+
+        // ── Step 9: JVM bytecode in a hidden class, cached by source ──
+        JvmProgram jvm = ClassFileCompiler.compile(SAMPLE, Map.of());
+        double[] jvmEnv = jvm.newEnvironment();
+        jvm.evaluate(jvmEnv);
+        ClassFileCompiler.compile(SAMPLE, Map.of()); // same source: no second class
+        System.out.println();
+        System.out.println("── Hidden class ──");
+        System.out.println("Same results as the evaluator: " + Arrays.equals(env, jvmEnv)
+                + ", classes cached: " + ClassFileCompiler.cacheSize());
+
+        // ── Step 10: Columnar — one rule over many records at once ────
+        ProgramNode rule = new Parser(TokenBuffer.of(
+                "tax = income * 15%; profit = income - expense - tax;")).parse();
+        ColumnarEvaluator columnar = new ColumnarEvaluator(rule);
+        int rows = 5;
+        double[][] columns = columnar.newColumns(rows);
+        int income = columnar.variables().slot("income");
+        int expense = columnar.variables().slot("expense");
+        for (int r = 0; r < rows; r++) {
+            columns[income][r] = 1000 * (r + 1);
+            columns[expense][r] = 400 * (r + 1);
+        }
+        columnar.evaluate(columns, rows);
+        System.out.println();
+        System.out.println("── Columnar ──");
+        System.out.println("  profit = " + Arrays.toString(columns[columnar.variables().slot("profit")]));
+
+        // ── Step 11: Constant folding and common subexpressions ───────
+        Optimizer.Result optimized = Optimizer.optimize(new Parser(TokenBuffer.of("""
+                tax = (income - expense) * 15%;
+                profit = income - expense - (income - expense) * 15%;
+                budget = 2 * 50% * profit;
+                if 1 > 2 then save(profit);
+                """)).parse());
+        System.out.println();
+        System.out.println("── Optimized (" + optimized + ") ──");
+        System.out.print(optimized.program().describe(""));
+
+        // ── Step 12: Flat AST — primitive arrays instead of node objects ─
+        FlatAst flat = new Parser(TokenBuffer.of(SAMPLE)).parseFlat();
+        System.out.println();
+        System.out.println("── FlatAst ──");
+        System.out.println(flat.size() + " nodes, " + flat.stringCount() + " interned strings, "
+                + flat.footprintBytes() + " bytes; same tree: "
+                + flat.toProgram().describe("").equals(ast.describe("")));
+
+        // ── Step 13: Incremental — re-parse only the edited statement ─
+        IncrementalParser document = new IncrementalParser(SAMPLE);
+        int at = SAMPLE.indexOf("2000");
+        document.edit(at, 4, "2500");
+        System.out.println();
+        System.out.println("── Incremental ──");
+        System.out.println("expense = 2000 -> 2500: re-parsed " + document.lastReparsed() + " statement(s), "
+                + document.program().getStatements().size() + " in the program");
+
+        // ── Step 14: Parse cache — keyed by SHA-256, kept in memory and on disk ─
+        Path cacheDir = Files.createTempDirectory("parse-cache");
+        ParseCache cache = new ParseCache(100_000, cacheDir);
+        cache.parse(SAMPLE);
+        cache.parse(SAMPLE);
+        ParseCache restarted = new ParseCache(100_000, cacheDir);
+        boolean sameTree = restarted.parse(SAMPLE).describe("").equals(ast.describe(""));
+        System.out.println();
+        System.out.println("── Parse cache ──");
+        System.out.println(cache);
+        System.out.println(restarted + "; same tree: " + sameTree);
+        try (var files = Files.walk(cacheDir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+
+        // ── Step 15: Binary AST — varints and a string table ──────────
+        byte[] encoded = AstCodec.encode(ast);
+        ProgramNode decoded = AstCodec.decode(ByteBuffer.wrap(encoded));
+        System.out.println();
+        System.out.println("── Binary AST ──");
+        System.out.println(encoded.length + " bytes for " + SAMPLE.length() + " characters of source; round trip: "
+                + decoded.describe("").equals(ast.describe("")));
+
+        // ── Step 16: Deep nesting — expressions parse without recursion ─
+        int depth = 100_000;
+        FlatAst deep = new Parser(TokenBuffer.of("x = " + "(- ".repeat(depth) + "income" + ")".repeat(depth) + ";"))
+                .parseFlat();
+        System.out.println();
+        System.out.println("── Deep expression ──");
+        System.out.println(depth + " nested groups: " + deep.size() + " nodes, no StackOverflowError");
     }
 }
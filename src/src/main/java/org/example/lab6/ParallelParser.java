@@ -0,0 +1,123 @@
+package org.example.lab6;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.ast.ASTNode;
+import org.example.lab6.ast.ProgramNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Lexes and parses large programs on several threads.
+ *
+ * Every top-level statement ends with {@code ;}, and a {@code ;} character is
+ * always a SEMICOLON token (no lexeme can contain one), so cutting the source
+ * right after a {@code ;} never splits a token, and a chunk of a valid
+ * program is itself a sequence of whole statements. The source is cut into
+ * chunks of roughly {@code chunkSize} characters at such points, each chunk is
+ * lexed into a {@link TokenBuffer} and parsed on its own worker, and the
+ * statements are concatenated in source order.
+ *
+ * Syntax errors are the same as the sequential {@link Parser}'s: the parser
+ * never reads past the {@code ;} that ends a statement, so the first failing
+ * chunk fails at the same token. Only that chunk is then lexed again with its
+ * real first line number (the newlines before it are counted), so the
+ * {@link Parser.ParseException} carries the line of the whole program.
+ */
+public final class ParallelParser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024; // chars
+
+    private final ExecutorService executor;
+    private final int chunkSize;
+
+    /** Runs on the common fork-join pool. */
+    public ParallelParser() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelParser(ExecutorService executor, int chunkSize) {
+        if (chunkSize < 1) throw new IllegalArgumentException("chunkSize must be positive");
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    public ProgramNode parse(CharSequence source) {
+        return parseAll(List.of(source)).get(0);
+    }
+
+    /**
+     * Parses a batch of independent scripts. Chunks of all scripts are queued
+     * together, so many small scripts keep the workers as busy as one big one.
+     * Throws the error of the first failing script, in list order.
+     */
+    public List<ProgramNode> parseAll(List<? extends CharSequence> sources) {
+        List<Callable<List<ASTNode>>> tasks = new ArrayList<>();
+        List<int[]> chunks = new ArrayList<>();      // {source index, from, to}
+        for (int s = 0; s < sources.size(); s++) {
+            CharSequence source = sources.get(s);
+            for (int[] range : split(source)) {
+                int from = range[0];
+                int to = range[1];
+                chunks.add(new int[] {s, from, to});
+                tasks.add(() -> parseChunk(source, from, to, 1));
+            }
+        }
+
+        List<List<ASTNode>> statements = new ArrayList<>();
+        for (int s = 0; s < sources.size(); s++) statements.add(new ArrayList<>());
+        try {
+            List<Future<List<ASTNode>>> results = executor.invokeAll(tasks);
+            for (int c = 0; c < results.size(); c++) {
+                int[] chunk = chunks.get(c);
+                try {
+                    statements.get(chunk[0]).addAll(results.get(c).get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Parser.ParseException) {
+                        // re-run the chunk with real line numbers for the error message
+                        CharSequence source = sources.get(chunk[0]);
+                        parseChunk(source, chunk[1], chunk[2], 1 + countNewlines(source, chunk[1]));
+                    }
+                    if (e.getCause() instanceof RuntimeException re) throw re;
+                    throw new IllegalStateException("Parsing failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while parsing");
+        }
+
+        List<ProgramNode> programs = new ArrayList<>(sources.size());
+        for (List<ASTNode> stmts : statements) programs.add(new ProgramNode(stmts));
+        return programs;
+    }
+
+    private static List<ASTNode> parseChunk(CharSequence source, int from, int to, int firstLine) {
+        List<ASTNode> stmts = new ArrayList<>();
+        new Parser(TokenBuffer.of(source, from, to, firstLine)).parse(stmts::add);
+        return stmts;
+    }
+
+    /** Chunk boundaries as {from, to} pairs; every chunk but the last ends just after a ';'. */
+    private List<int[]> split(CharSequence source) {
+        int length = source.length();
+        List<int[]> ranges = new ArrayList<>();
+        int from = 0;
+        do {
+            int to = (int) Math.min(length, (long) from + chunkSize);
+            while (to < length && source.charAt(to - 1) != ';') to++;
+            ranges.add(new int[] {from, to});
+            from = to;
+        } while (from < length);
+        return ranges;
+    }
+
+    private static int countNewlines(CharSequence source, int end) {
+        int n = 0;
+        for (int i = 0; i < end; i++) {
+            if (source.charAt(i) == '\n') n++;
+        }
+        return n;
+    }
+}
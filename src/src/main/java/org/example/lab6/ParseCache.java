@@ -0,0 +1,201 @@
+package org.example.lab6;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.ast.AstCodec;
+import org.example.lab6.ast.FlatAst;
+import org.example.lab6.ast.ProgramNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed programs keyed by the SHA-256 of their source, so a script that is
+ * loaded again is not lexed and parsed again.
+ *
+ * Entries are kept in least-recently-used order and weighed by their node
+ * count. When the total weight goes over {@code maxNodes}, the least recently
+ * used entries are evicted. A program bigger than the whole budget is parsed
+ * but not kept.
+ *
+ * With a directory, every program parsed is also written there in the
+ * {@link AstCodec} format, one {@code <sha256>.ast} file each. A miss in
+ * memory then maps the file and decodes it before falling back to parsing,
+ * so the cache survives restarts. A file that does not decode is ignored
+ * and rewritten. Persistence is best effort: a file that cannot be written
+ * (full disk, read-only directory) is counted in {@link #storeFailures()}
+ * and the parsed program is still returned.
+ *
+ * Programs are held as {@link FlatAst}s, which are immutable, and every
+ * lookup builds a fresh {@link ProgramNode} from one. Callers own the tree
+ * they get back and may change it without affecting anyone else.
+ *
+ * Sources with syntax errors are never cached; every lookup throws the same
+ * {@link Parser.ParseException} a plain parse would. Safe for concurrent use.
+ * Two threads missing on the same source may both parse it.
+ */
+public final class ParseCache {
+
+    private static final String SUFFIX = ".ast";
+
+    private final long maxNodes;
+    private final Path directory; // null: memory only
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long nodes;
+
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+    private long storeFailures;
+
+    private record Entry(FlatAst ast, int nodes) {}
+
+    public ParseCache(long maxNodes) {
+        this(maxNodes, null);
+    }
+
+    /** Persists programs to {@code directory}, which is created if needed. */
+    public ParseCache(long maxNodes, Path directory) {
+        if (maxNodes < 0) throw new IllegalArgumentException("maxNodes must not be negative");
+        this.maxNodes = maxNodes;
+        this.directory = directory;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Lookup
+    // -------------------------------------------------------------------------
+
+    public ProgramNode parse(String source) {
+        String key = sha256(source);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null) hits++;
+        }
+        if (entry != null) return entry.ast().toProgram();
+
+        FlatAst flat = directory != null ? load(key) : null;
+        boolean fromDisk = flat != null;
+        boolean stored = true;
+        if (!fromDisk) {
+            flat = new Parser(TokenBuffer.of(source)).parseFlat();
+            if (directory != null) stored = store(key, flat);
+        }
+        synchronized (this) {
+            if (fromDisk) diskHits++;
+            else misses++;
+            if (!stored) storeFailures++;
+            put(key, new Entry(flat, flat.size()));
+        }
+        return flat.toProgram();
+    }
+
+    private void put(String key, Entry entry) {
+        if (entry.nodes() > maxNodes) return;
+        Entry old = entries.put(key, entry);
+        if (old != null) nodes -= old.nodes();
+        nodes += entry.nodes();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (nodes > maxNodes) {
+            nodes -= eldest.next().nodes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /** Drops the entries held in memory; files on disk are kept. */
+    public synchronized void clear() {
+        entries.clear();
+        nodes = 0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Metrics
+    // -------------------------------------------------------------------------
+
+    public synchronized int size()          { return entries.size(); }
+    public synchronized long nodes()        { return nodes; }
+    public long maxNodes()                  { return maxNodes; }
+
+    /** Lookups answered from memory. */
+    public synchronized long hits()         { return hits; }
+    /** Lookups answered from a file, without parsing. */
+    public synchronized long diskHits()     { return diskHits; }
+    /** Lookups that had to parse the source. */
+    public synchronized long misses()       { return misses; }
+    public synchronized long evictions()    { return evictions; }
+    /** Programs parsed but not written to the directory because of an I/O error. */
+    public synchronized long storeFailures() { return storeFailures; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ParseCache[%d programs, %d/%d nodes, %d hits, %d disk hits, %d misses, %d evictions, "
+                + "%d store failures]", entries.size(), nodes, maxNodes, hits, diskHits, misses, evictions,
+                storeFailures);
+    }
+
+    // -------------------------------------------------------------------------
+    // Disk
+    // -------------------------------------------------------------------------
+
+    private FlatAst load(String key) {
+        Path file = directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return AstCodec.decodeFlat(buffer);
+        } catch (IOException | AstCodec.FormatException e) {
+            return null; // truncated or from another format: parse again and overwrite
+        }
+    }
+
+    /**
+     * Writes to a temporary file first, so readers never see half a file.
+     * Returns false if the file could not be written; the program then just
+     * stays memory only.
+     */
+    private boolean store(String key, FlatAst flat) {
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tmp, AstCodec.encode(flat));
+            Files.move(tmp, directory.resolve(key + SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            try {
+                if (tmp != null) Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // best effort: a leftover .tmp file is never read
+            }
+            return false;
+        }
+    }
+
+    static String sha256(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // mandatory in every JDK
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package org.example.lab6;
 
 import org.example.lab3.Token;
+import org.example.lab3.TokenStream;
 import org.example.lab3.TokenType;
 import org.example.lab6.ast.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
- * Recursive-descent parser for the financial DSL defined in Lab 3.
+ * Parser for the financial DSL defined in Lab 3: recursive descent for
+ * statements, precedence climbing on explicit stacks for expressions, so
+ * machine-generated expressions of any nesting depth cannot overflow the
+ * thread stack.
  *
  * Grammar (simplified BNF):
  * <pre>
@@ -36,6 +42,16 @@ import java.util.Set;
  *   number         → (INTEGER | FLOAT) PERCENT?
  *   compOp         → GREATER | LESS | GREATER_EQUAL | LESS_EQUAL | EQUAL_EQUAL | NOT_EQUAL
  * </pre>
+ *
+ * Tokens are read through a {@link TokenStream} by index, so the parser runs
+ * directly on a {@link org.example.lab3.TokenBuffer}; lexemes are only asked
+ * for when a node (or an error message) needs them. It never looks more than
+ * one token ahead or behind, so it can also pull tokens lazily from a
+ * {@link org.example.lab3.StreamingLexer}.
+ *
+ * Nodes are reported to an {@link AstBuilder} as int handles, so the same
+ * grammar code builds the usual object tree ({@link #parse()},
+ * {@link #nextStatement()}) or a {@link FlatAst} ({@link #parseFlat()}).
  */
 public class Parser {
 
@@ -58,10 +74,16 @@ public class Parser {
         TokenType.EQUAL_EQUAL, TokenType.NOT_EQUAL
     );
 
-    private final List<Token> tokens;
+    private final TokenStream tokens;
+    private final TreeBuilder tree = new TreeBuilder();
+    private AstBuilder out = tree;
     private int pos = 0;
 
     public Parser(List<Token> tokens) {
+        this(TokenStream.of(tokens));
+    }
+
+    public Parser(TokenStream tokens) {
         this.tokens = tokens;
     }
 
@@ -71,40 +93,73 @@ public class Parser {
 
     public ProgramNode parse() {
         List<ASTNode> stmts = new ArrayList<>();
-        while (!check(TokenType.EOF)) {
-            stmts.add(parseStatement());
-        }
+        parse(stmts::add);
         return new ProgramNode(stmts);
     }
 
+    /**
+     * Streaming mode: parses one top-level statement at a time and hands it to
+     * {@code consumer} before reading the next, without collecting them. Over a
+     * {@link org.example.lab3.StreamingLexer} memory stays bounded by the
+     * largest single statement. Returns the number of statements parsed.
+     */
+    public long parse(Consumer<? super ASTNode> consumer) {
+        long count = 0;
+        ASTNode stmt;
+        while ((stmt = nextStatement()) != null) {
+            consumer.accept(stmt);
+            count++;
+        }
+        return count;
+    }
+
+    /** Parses the next top-level statement, or returns null at end of input. */
+    public ASTNode nextStatement() {
+        if (check(TokenType.EOF)) return null;
+        tree.reset();
+        return tree.node(parseStatement());
+    }
+
+    /** Parses the rest of the input straight into a {@link FlatAst}, with no node objects. */
+    public FlatAst parseFlat() {
+        FlatAst.Builder flat = new FlatAst.Builder();
+        out = flat;
+        try {
+            while (!check(TokenType.EOF)) flat.statement(parseStatement());
+        } finally {
+            out = tree;
+        }
+        return flat.build();
+    }
+
     // -----------------------------------------------------------------------
     // Statements
     // -----------------------------------------------------------------------
 
-    private ASTNode parseStatement() {
+    private int parseStatement() {
         // if-then-else
         if (check(TokenType.IF)) {
             return parseIf();
         }
 
         // Assignment: (keyword | IDENTIFIER) followed immediately by '='
-        if ((ANY_KEYWORD.contains(peek().getType()) || check(TokenType.IDENTIFIER))
-                && peekAhead(1).getType() == TokenType.ASSIGN) {
+        if ((ANY_KEYWORD.contains(peek()) || check(TokenType.IDENTIFIER))
+                && peekAhead(1) == TokenType.ASSIGN) {
             return parseAssignment();
         }
 
         // Expression statement
-        ASTNode expr = parseExpression();
+        int expr = parseExpression();
         consume(TokenType.SEMICOLON, "Expected ';' after expression");
         return expr;
     }
 
-    private ASTNode parseAssignment() {
-        Token lhs = advance(); // keyword or IDENTIFIER
-        consume(TokenType.ASSIGN, "Expected '=' after '" + lhs.getLexeme() + "'");
-        ASTNode value = parseExpression();
+    private int parseAssignment() {
+        String lhs = lexeme(advance()); // keyword or IDENTIFIER
+        consume(TokenType.ASSIGN, "Expected '=' after '" + lhs + "'");
+        int value = parseExpression();
         consume(TokenType.SEMICOLON, "Expected ';' after assignment");
-        return new AssignNode(lhs.getLexeme(), value);
+        return out.assign(lhs, value);
     }
 
     /**
@@ -112,167 +167,263 @@ public class Parser {
      * The branches are expressions (which can include calls); the trailing
      * semicolon belongs to the whole if-statement.
      */
-    private ASTNode parseIf() {
+    private int parseIf() {
         consume(TokenType.IF,   "Expected 'if'");
-        ASTNode condition  = parseExpression();
+        int condition  = parseExpression();
         consume(TokenType.THEN, "Expected 'then'");
-        ASTNode thenBranch = parseExpression();
-        ASTNode elseBranch = null;
+        int thenBranch = parseExpression();
+        int elseBranch = AstBuilder.NONE;
         if (check(TokenType.ELSE)) {
             advance();
             elseBranch = parseExpression();
         }
         consume(TokenType.SEMICOLON, "Expected ';' after if-statement");
-        return new IfNode(condition, thenBranch, elseBranch);
+        return out.ifNode(condition, thenBranch, elseBranch);
     }
 
     // -----------------------------------------------------------------------
-    // Expressions — precedence levels (low to high)
+    // Expressions — precedence climbing on explicit stacks
     // -----------------------------------------------------------------------
 
-    private ASTNode parseExpression() {
-        return parseComparison();
-    }
+    // Entries of the operator stack; binary kinds are their precedence
+    private static final int COMPARISON = 1;
+    private static final int ADDITION   = 2;
+    private static final int MULTIPLY   = 3;
+    private static final int UNARY      = 4;  // pending MINUS, applied once its operand is done
+    private static final int GROUP      = 5;  // open '('
+    private static final int CALL       = 6;  // open call; the text is the callee
+
+    private int[] opKind = new int[16];
+    private String[] opText = new String[16];
+    private int[] opBase = new int[16];       // CALL: values index of its first argument
+    private int ops;
+    private int[] values = new int[16];
+    private int valueCount;
+    private int[] args = new int[4];          // arguments of the call being built
+
+    /**
+     * expression → comparison, per the grammar above, but without recursion:
+     * open groups and calls, pending operators and finished operands live on
+     * explicit stacks, so nesting depth is bounded by memory, not the thread
+     * stack. Builder calls, the resulting tree and every error are the same
+     * as recursive descent would give.
+     */
+    private int parseExpression() {
+        ops = 0;
+        valueCount = 0;
+        while (true) {
+            // operand: unary → MINUS unary | primary
+            while (check(TokenType.MINUS)) pushOp(UNARY, lexeme(advance()), 0);
+            TokenType t = peek();
+            if (t == TokenType.LPAREN) {
+                advance();
+                pushOp(GROUP, null, 0);
+                continue;
+            }
+            if (CALL_KEYWORD.contains(t) && peekAhead(1) == TokenType.LPAREN) {
+                String callee = lexeme(advance());
+                consume(TokenType.LPAREN, "Expected '(' after '" + callee + "'");
+                if (!check(TokenType.RPAREN)) {
+                    pushOp(CALL, callee, valueCount);
+                    continue;
+                }
+                advance();
+                pushValue(out.call(callee, values, 0));
+            } else {
+                pushValue(parseLeaf(t));
+            }
 
-    /** comparison → addition (compOp addition)? */
-    private ASTNode parseComparison() {
-        ASTNode left = parseAddition();
-        if (COMP_OPS.contains(peek().getType())) {
-            Token op    = advance();
-            ASTNode right = parseAddition();
-            return new BinaryOpNode(op.getLexeme(), left, right);
+            // after an operand: climb out of whatever it completes
+            while (true) {
+                while (ops > 0 && opKind[ops - 1] == UNARY) {
+                    ops--;
+                    pushValue(out.unary(opText[ops], popValue()));
+                }
+                int prec = precedence(peek());
+                if (prec > 0) {
+                    reduce(Math.max(prec, ADDITION));
+                    // comparison takes one compOp; a second one ends the expression
+                    if (prec != COMPARISON || ops == 0 || opKind[ops - 1] != COMPARISON) {
+                        pushOp(prec, lexeme(advance()), 0);
+                        break;
+                    }
+                }
+                reduce(COMPARISON);
+                if (ops == 0) return popValue();
+                if (opKind[ops - 1] == CALL && check(TokenType.COMMA)) {
+                    advance();
+                    break;
+                }
+                consume(TokenType.RPAREN, "Expected ')'");
+                ops--;
+                if (opKind[ops] == CALL) {
+                    int base = opBase[ops];
+                    int count = valueCount - base;
+                    if (count > args.length) args = Arrays.copyOf(args, Math.max(count, args.length * 2));
+                    System.arraycopy(values, base, args, 0, count);
+                    valueCount = base;
+                    pushValue(out.call(opText[ops], args, count));
+                }
+            }
         }
-        return left;
     }
 
-    /** addition → multiplication ((PLUS | MINUS) multiplication)* */
-    private ASTNode parseAddition() {
-        ASTNode left = parseMultiplication();
-        while (check(TokenType.PLUS) || check(TokenType.MINUS)) {
-            Token op    = advance();
-            ASTNode right = parseMultiplication();
-            left = new BinaryOpNode(op.getLexeme(), left, right);
+    /** Applies the binary operators on top of the stack that bind at least as tightly as {@code prec}. */
+    private void reduce(int prec) {
+        while (ops > 0 && opKind[ops - 1] >= prec && opKind[ops - 1] <= MULTIPLY) {
+            ops--;
+            int right = popValue();
+            int left = popValue();
+            pushValue(out.binary(opText[ops], left, right));
         }
-        return left;
     }
 
-    /** multiplication → unary ((MULTIPLY | DIVIDE) unary)* */
-    private ASTNode parseMultiplication() {
-        ASTNode left = parseUnary();
-        while (check(TokenType.MULTIPLY) || check(TokenType.DIVIDE)) {
-            Token op    = advance();
-            ASTNode right = parseUnary();
-            left = new BinaryOpNode(op.getLexeme(), left, right);
-        }
-        return left;
+    private static int precedence(TokenType t) {
+        if (t == TokenType.MULTIPLY || t == TokenType.DIVIDE) return MULTIPLY;
+        if (t == TokenType.PLUS || t == TokenType.MINUS)     return ADDITION;
+        return COMP_OPS.contains(t) ? COMPARISON : 0;
     }
 
-    /** unary → MINUS unary | primary */
-    private ASTNode parseUnary() {
-        if (check(TokenType.MINUS)) {
-            Token op = advance();
-            return new UnaryOpNode(op.getLexeme(), parseUnary());
+    private void pushOp(int kind, String text, int base) {
+        if (ops == opKind.length) {
+            int n = ops * 2;
+            opKind = Arrays.copyOf(opKind, n);
+            opText = Arrays.copyOf(opText, n);
+            opBase = Arrays.copyOf(opBase, n);
         }
-        return parsePrimary();
+        opKind[ops] = kind;
+        opText[ops] = text;
+        opBase[ops] = base;
+        ops++;
+    }
+
+    private void pushValue(int handle) {
+        if (valueCount == values.length) values = Arrays.copyOf(values, valueCount * 2);
+        values[valueCount++] = handle;
+    }
+
+    private int popValue() {
+        return values[--valueCount];
     }
 
     // -----------------------------------------------------------------------
     // Primaries
     // -----------------------------------------------------------------------
 
-    private ASTNode parsePrimary() {
-        Token t = peek();
-
-        // Grouped expression
-        if (t.getType() == TokenType.LPAREN) {
-            advance();
-            ASTNode expr = parseExpression();
-            consume(TokenType.RPAREN, "Expected ')'");
-            return expr;
-        }
-
-        // Function call: save/invest/budget followed by '('
-        if (CALL_KEYWORD.contains(t.getType())
-                && peekAhead(1).getType() == TokenType.LPAREN) {
-            return parseCall();
-        }
-
+    /** The primaries that contain no expression: number, keyword, IDENTIFIER. */
+    private int parseLeaf(TokenType t) {
         // Numeric literal (integer or float), optionally followed by %
-        if (t.getType() == TokenType.INTEGER || t.getType() == TokenType.FLOAT) {
+        if (t == TokenType.INTEGER || t == TokenType.FLOAT) {
             return parseNumber();
         }
 
         // Domain keyword used as a value reference (income, expense, tax, etc.)
-        if (ANY_KEYWORD.contains(t.getType())) {
-            return new KeywordNode(advance().getLexeme());
+        if (ANY_KEYWORD.contains(t)) {
+            return out.keyword(lexeme(advance()));
         }
 
         // Plain identifier
-        if (t.getType() == TokenType.IDENTIFIER) {
-            return new IdentifierNode(advance().getLexeme());
+        if (t == TokenType.IDENTIFIER) {
+            return out.identifier(lexeme(advance()));
         }
 
-        throw new ParseException("Unexpected token: '" + t.getLexeme()
-                + "' (" + t.getType() + ") at line " + t.getLine());
-    }
-
-    /** callExpr → callKeyword LPAREN argList? RPAREN */
-    private ASTNode parseCall() {
-        Token callee = advance(); // SAVE | INVEST | BUDGET
-        consume(TokenType.LPAREN, "Expected '(' after '" + callee.getLexeme() + "'");
-        List<ASTNode> args = new ArrayList<>();
-        if (!check(TokenType.RPAREN)) {
-            args.add(parseExpression());
-            while (check(TokenType.COMMA)) {
-                advance();
-                args.add(parseExpression());
-            }
-        }
-        consume(TokenType.RPAREN, "Expected ')'");
-        return new CallNode(callee.getLexeme(), args);
+        throw new ParseException("Unexpected token: '" + lexeme(pos)
+                + "' (" + t + ") at line " + tokens.line(pos));
     }
 
     /** number → (INTEGER | FLOAT) PERCENT? */
-    private ASTNode parseNumber() {
-        Token num = advance();
+    private int parseNumber() {
+        String num = lexeme(advance());
         boolean isPercent = false;
         if (check(TokenType.PERCENT)) {
             advance();
             isPercent = true;
         }
-        return new NumberNode(num.getLexeme(), isPercent);
+        return out.number(num, isPercent);
     }
 
     // -----------------------------------------------------------------------
     // Helpers
     // -----------------------------------------------------------------------
 
-    private Token peek() {
-        return tokens.get(pos);
+    private TokenType peek() {
+        return tokens.type(pos);
     }
 
-    private Token peekAhead(int offset) {
-        int idx = pos + offset;
-        return idx < tokens.size() ? tokens.get(idx) : tokens.get(tokens.size() - 1);
+    private TokenType peekAhead(int offset) {
+        return tokens.type(pos + offset); // clamps to EOF
     }
 
-    private Token advance() {
+    /** Moves past the current token and returns its index. */
+    private int advance() {
         if (!check(TokenType.EOF)) pos++;
-        return tokens.get(pos - 1);
+        return pos - 1;
+    }
+
+    private String lexeme(int index) {
+        return tokens.lexeme(index);
     }
 
     private boolean check(TokenType type) {
-        return peek().getType() == type;
+        return peek() == type;
     }
 
-    private Token consume(TokenType type, String message) {
+    private int consume(TokenType type, String message) {
         if (!check(type)) {
             throw new ParseException(message + " — got '"
-                    + peek().getLexeme() + "' at line " + peek().getLine());
+                    + lexeme(pos) + "' at line " + tokens.line(pos));
         }
         return advance();
     }
 
+    // -----------------------------------------------------------------------
+    // Object tree
+    // -----------------------------------------------------------------------
+
+    /** Builds ordinary AST objects; a handle indexes the nodes of the current statement. */
+    private static final class TreeBuilder implements AstBuilder {
+        private ASTNode[] nodes = new ASTNode[32];
+        private int size;
+
+        ASTNode node(int handle) { return nodes[handle]; }
+
+        void reset() {
+            Arrays.fill(nodes, 0, size, null);
+            size = 0;
+        }
+
+        private int add(ASTNode node) {
+            if (size == nodes.length) nodes = Arrays.copyOf(nodes, size * 2);
+            nodes[size] = node;
+            return size++;
+        }
+
+        @Override public int number(String text, boolean percent) { return add(new NumberNode(text, percent)); }
+        @Override public int identifier(String name)    { return add(new IdentifierNode(name)); }
+        @Override public int keyword(String keyword)    { return add(new KeywordNode(keyword)); }
+        @Override public int unary(String op, int operand) { return add(new UnaryOpNode(op, nodes[operand])); }
+
+        @Override
+        public int binary(String op, int left, int right) {
+            return add(new BinaryOpNode(op, nodes[left], nodes[right]));
+        }
+
+        @Override public int assign(String name, int value) { return add(new AssignNode(name, nodes[value])); }
+
+        @Override
+        public int ifNode(int condition, int thenBranch, int elseBranch) {
+            return add(new IfNode(nodes[condition], nodes[thenBranch],
+                                  elseBranch == NONE ? null : nodes[elseBranch]));
+        }
+
+        @Override
+        public int call(String callee, int[] args, int count) {
+            List<ASTNode> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) list.add(nodes[args[i]]);
+            return add(new CallNode(callee, list));
+        }
+    }
+
     // -----------------------------------------------------------------------
 
     /** Thrown when the input does not conform to the grammar. */
@@ -0,0 +1,31 @@
+package org.example.lab6.ast;
+
+/**
+ * Receives the nodes of one parse bottom-up, children before parents. Each
+ * method returns an int handle for the new node, which the parser passes back
+ * when the node becomes a child. Handles mean whatever the builder wants them
+ * to mean, so the same parser can build an object tree or a {@link FlatAst}
+ * without an object per node in the latter.
+ */
+public interface AstBuilder {
+
+    /** Handle for an absent child (the else branch of an if without else). */
+    int NONE = -1;
+
+    int number(String text, boolean percent);
+
+    int identifier(String name);
+
+    int keyword(String keyword);
+
+    int unary(String op, int operand);
+
+    int binary(String op, int left, int right);
+
+    int assign(String name, int value);
+
+    int ifNode(int condition, int thenBranch, int elseBranch);
+
+    /** Arguments are {@code args[0, count)}; the array may be reused once this returns. */
+    int call(String callee, int[] args, int count);
+}
@@ -0,0 +1,365 @@
+package org.example.lab6.ast;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary form of a lab 6 program, for sending parsed ASTs to other
+ * processes or to disk.
+ *
+ * <pre>
+ *   magic "LAST", version byte
+ *   varint string count, then each string as varint length + UTF-8
+ *   varint node count, then the nodes in {@link FlatAst} order
+ *   varint statement count, then each statement as a varint gap from the last
+ * </pre>
+ *
+ * A node starts with one byte: its kind in the low three bits and, for a
+ * NUMBER, flags above them. Names and operators follow as varint string ids.
+ * Children come before their parent, so a child is written as the varint
+ * distance back to it, usually one byte. An absent else branch is 0.
+ *
+ * A literal is stored the cheapest way that gives back its exact spelling:
+ * a varint for plain integers, an 8-byte double for other canonical values,
+ * or the id of its text (e.g. {@code 007} or {@code 1.50}).
+ *
+ * The format is decodable in a single pass but is not zero-copy: varints
+ * give nodes no fixed offsets, so a node cannot be found without reading
+ * every node before it. {@link #decodeFlat} reads a {@link ByteBuffer} (heap,
+ * direct or memory mapped) once from its position, leaving it after the
+ * program, and copies the nodes, literals and strings into a new
+ * {@link FlatAst}; {@link #decode} then builds the object tree from that.
+ * Malformed input throws {@link FormatException}.
+ */
+public final class AstCodec {
+
+    private static final int MAGIC = 0x4C415354; // "LAST"
+    private static final byte VERSION = 1;
+
+    // NUMBER flags, above the kind bits of the node byte
+    private static final int PERCENT = 1 << 3;
+    private static final int INTEGER = 2 << 3;   // canonical integer: a varint follows
+    private static final int TEXT    = 4 << 3;   // spelled differently: a string id follows
+    private static final int KIND    = 7;
+
+    private AstCodec() {}
+
+    public static class FormatException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public FormatException(String message) { super(message); }
+    }
+
+    // -------------------------------------------------------------------------
+    // Encoding
+    // -------------------------------------------------------------------------
+
+    public static byte[] encode(ProgramNode program) {
+        return encode(FlatAst.of(program));
+    }
+
+    public static byte[] encode(FlatAst ast) {
+        Output out = new Output(16 + 4 * ast.size());
+        out.int32(MAGIC);
+        out.byte1(VERSION);
+
+        out.varint(ast.stringCount());
+        for (int i = 0; i < ast.stringCount(); i++) {
+            byte[] utf8 = ast.string(i).getBytes(StandardCharsets.UTF_8);
+            out.varint(utf8.length);
+            out.append(utf8);
+        }
+
+        out.varint(ast.size());
+        for (int n = 0; n < ast.size(); n++) {
+            int kind = ast.kind(n);
+            switch (kind) {
+                case FlatAst.NUMBER -> number(ast, n, out);
+                case FlatAst.IDENTIFIER, FlatAst.KEYWORD -> {
+                    out.byte1(kind);
+                    out.varint(ast.nameId(n));
+                }
+                case FlatAst.UNARY -> {
+                    out.byte1(kind);
+                    out.varint(ast.opId(n));
+                    out.varint(n - ast.operand(n));
+                }
+                case FlatAst.BINARY -> {
+                    out.byte1(kind);
+                    out.varint(ast.opId(n));
+                    out.varint(n - ast.left(n));
+                    out.varint(n - ast.right(n));
+                }
+                case FlatAst.ASSIGN -> {
+                    out.byte1(kind);
+                    out.varint(ast.nameId(n));
+                    out.varint(n - ast.value(n));
+                }
+                case FlatAst.IF -> {
+                    out.byte1(kind);
+                    out.varint(n - ast.condition(n));
+                    out.varint(n - ast.thenBranch(n));
+                    out.varint(ast.elseBranch(n) < 0 ? 0 : n - ast.elseBranch(n));
+                }
+                case FlatAst.CALL -> {
+                    out.byte1(kind);
+                    out.varint(ast.nameId(n));
+                    out.varint(ast.argCount(n));
+                    for (int i = 0; i < ast.argCount(n); i++) out.varint(n - ast.arg(n, i));
+                }
+                default -> throw new IllegalStateException("Bad node kind " + kind);
+            }
+        }
+
+        out.varint(ast.statementCount());
+        int previous = -1;
+        for (int i = 0; i < ast.statementCount(); i++) {
+            out.varint(ast.statement(i) - previous);
+            previous = ast.statement(i);
+        }
+        return Arrays.copyOf(out.bytes, out.size);
+    }
+
+    private static void number(FlatAst ast, int n, Output out) {
+        int flags = FlatAst.NUMBER | (ast.isPercent(n) ? PERCENT : 0);
+        int text = ast.textId(n);
+        double value = ast.number(n);
+        if (text >= 0) {
+            out.byte1(flags | TEXT);
+            out.varint(text);
+        } else if (ast.isInteger(n)) {
+            out.byte1(flags | INTEGER);
+            out.varlong((long) value);
+        } else {
+            out.byte1(flags);
+            out.int64(Double.doubleToRawLongBits(value));
+        }
+    }
+
+    /** A growable byte array. */
+    private static final class Output {
+        byte[] bytes;
+        int size;
+
+        Output(int capacity) { bytes = new byte[capacity]; }
+
+        void ensure(int n) {
+            if (size + n > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + n));
+        }
+
+        void byte1(int v) {
+            ensure(1);
+            bytes[size++] = (byte) v;
+        }
+
+        void varint(int v) {
+            varlong(v & 0xFFFFFFFFL);
+        }
+
+        void varlong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                bytes[size++] = (byte) (v | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+        void int32(int v) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) bytes[size++] = (byte) (v >>> shift);
+        }
+
+        void int64(long v) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) bytes[size++] = (byte) (v >>> shift);
+        }
+
+        void append(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Decoding
+    // -------------------------------------------------------------------------
+
+    public static ProgramNode decode(ByteBuffer in) {
+        return decodeFlat(in).toProgram();
+    }
+
+    public static FlatAst decodeFlat(ByteBuffer in) {
+        try {
+            return read(in);
+        } catch (BufferUnderflowException e) {
+            throw new FormatException("Truncated AST");
+        }
+    }
+
+    private static FlatAst read(ByteBuffer in) {
+        if (in.remaining() < 5 || (int) int64(in, 4) != MAGIC) throw new FormatException("Not an encoded AST");
+        byte version = in.get();
+        if (version != VERSION) throw new FormatException("Unsupported AST version " + version);
+
+        String[] strings = new String[length(in)];
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < strings.length; i++) {
+            int length = length(in);
+            if (in.hasArray()) {
+                strings[i] = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+            } else {
+                if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+                in.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+        }
+
+        int size = length(in);
+        byte[] kind = new byte[size];
+        int[] a = new int[size];
+        int[] b = new int[size];
+        int[] c = new int[size];
+        double[] numbers = new double[16];
+        int numberCount = 0;
+        int[] args = new int[16];
+        int argCount = 0;
+        for (int n = 0; n < size; n++) {
+            int head = in.get() & 0xFF;
+            byte k = (byte) (head & KIND);
+            if (k != FlatAst.NUMBER && head != k) throw new FormatException("Bad node " + head + " at " + n);
+            kind[n] = k;
+            switch (k) {
+                case FlatAst.NUMBER -> {
+                    if ((head & ~(KIND | PERCENT | INTEGER | TEXT)) != 0 || (head & (INTEGER | TEXT)) == (INTEGER | TEXT)) {
+                        throw new FormatException("Bad number flags " + head + " at " + n);
+                    }
+                    double value;
+                    int flags = (head & PERCENT) != 0 ? FlatAst.PERCENT : 0;
+                    int text = -1;
+                    if ((head & TEXT) != 0) {
+                        text = string(in, strings);
+                        value = literal(strings[text], n);
+                        if (strings[text].indexOf('.') < 0) flags |= FlatAst.INTEGER;
+                    } else if ((head & INTEGER) != 0) {
+                        long v = varlong(in);
+                        if (v < 0) throw new FormatException("Bad integer literal at " + n);
+                        value = v;
+                        flags |= FlatAst.INTEGER;
+                    } else {
+                        value = Double.longBitsToDouble(int64(in, 8));
+                    }
+                    if (numberCount == numbers.length) numbers = Arrays.copyOf(numbers, numberCount * 2);
+                    numbers[numberCount] = value;
+                    a[n] = numberCount++;
+                    b[n] = flags;
+                    c[n] = text;
+                }
+                case FlatAst.IDENTIFIER, FlatAst.KEYWORD -> a[n] = string(in, strings);
+                case FlatAst.UNARY -> {
+                    b[n] = string(in, strings);
+                    a[n] = child(in, n);
+                }
+                case FlatAst.BINARY -> {
+                    c[n] = string(in, strings);
+                    a[n] = child(in, n);
+                    b[n] = child(in, n);
+                }
+                case FlatAst.ASSIGN -> {
+                    a[n] = string(in, strings);
+                    b[n] = child(in, n);
+                }
+                case FlatAst.IF -> {
+                    a[n] = child(in, n);
+                    b[n] = child(in, n);
+                    int gap = count(in);
+                    c[n] = gap == 0 ? AstBuilder.NONE : checked(n - gap, n);
+                }
+                case FlatAst.CALL -> {
+                    a[n] = string(in, strings);
+                    int count = length(in);
+                    if (argCount + count > args.length) {
+                        args = Arrays.copyOf(args, Math.max(args.length * 2, argCount + count));
+                    }
+                    b[n] = argCount;
+                    c[n] = count;
+                    for (int i = 0; i < count; i++) args[argCount++] = child(in, n);
+                }
+                default -> throw new FormatException("Bad node kind " + k + " at " + n);
+            }
+        }
+
+        int[] statements = new int[length(in)];
+        int previous = -1;
+        for (int i = 0; i < statements.length; i++) {
+            int gap = count(in);
+            if (gap == 0 || gap >= size - previous) throw new FormatException("Statement " + i + " out of range");
+            previous += gap;
+            statements[i] = previous;
+        }
+        return new FlatAst(kind, a, b, c, Arrays.copyOf(numbers, numberCount), Arrays.copyOf(args, argCount),
+                strings, statements);
+    }
+
+    private static int child(ByteBuffer in, int parent) {
+        return checked(parent - count(in), parent);
+    }
+
+    private static int checked(int child, int parent) {
+        if (child < 0 || child >= parent) throw new FormatException("Bad child " + child + " of node " + parent);
+        return child;
+    }
+
+    private static int string(ByteBuffer in, String[] strings) {
+        int id = count(in);
+        if (id >= strings.length) throw new FormatException("Bad string id " + id);
+        return id;
+    }
+
+    private static double literal(String text, int node) {
+        try {
+            return FlatAst.literalValue(text);
+        } catch (NumberFormatException e) {
+            throw new FormatException("Bad literal '" + text + "' at " + node);
+        }
+    }
+
+    /** A varint that must fit a non-negative int. */
+    private static int count(ByteBuffer in) {
+        long v = varlong(in);
+        if (v < 0 || v > Integer.MAX_VALUE) throw new FormatException("Bad number " + v);
+        return (int) v;
+    }
+
+    /**
+     * The length of something that takes at least a byte per element, so it
+     * cannot be more than what is left; a corrupt length fails here instead
+     * of allocating a huge array.
+     */
+    private static int length(ByteBuffer in) {
+        int v = count(in);
+        if (v > in.remaining()) throw new FormatException("Length " + v + " past the end");
+        return v;
+    }
+
+    /** Big-endian whatever the buffer's byte order. */
+    private static long int64(ByteBuffer in, int bytes) {
+        long v = 0;
+        for (int i = 0; i < bytes; i++) v = v << 8 | (in.get() & 0xFF);
+        return v;
+    }
+
+    private static long varlong(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new FormatException("Varint too long");
+    }
+}
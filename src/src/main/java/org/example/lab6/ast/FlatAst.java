@@ -0,0 +1,407 @@
+package org.example.lab6.ast;
+
+import java.util.*;
+
+/**
+ * Flat, struct-of-arrays encoding of a lab 6 program. Nodes are dense int ids
+ * with no object per node. Each node has one {@code byte} kind and three
+ * {@code int} fields, 13 bytes in all. Names and operators are interned to ids
+ * in a string table, and number literals are {@code double}s in a side array.
+ *
+ * <pre>
+ *   kind        a              b               c
+ *   NUMBER      number index   flags           exact text id, or -1
+ *   IDENTIFIER  name id        -               -
+ *   KEYWORD     name id        -               -
+ *   UNARY       operand        operator id     -
+ *   BINARY      left           right           operator id
+ *   ASSIGN      name id        value           -
+ *   IF          condition      then            else, or -1
+ *   CALL        callee id      first arg slot  argument count
+ * </pre>
+ *
+ * Children always have smaller ids than their parents. Call arguments are
+ * node ids in a separate {@code int[]}. A literal's text is only stored when
+ * it cannot be rebuilt from its value, e.g. {@code 1.50} or {@code 007}. So
+ * {@link #toProgram()} gives back exactly the tree that was parsed.
+ *
+ * Build one with {@link org.example.lab6.Parser#parseFlat()} or
+ * {@link #of(ProgramNode)}; walk it with a {@link Visitor} or the accessors.
+ */
+public final class FlatAst {
+
+    public static final byte NUMBER = 0;
+    public static final byte IDENTIFIER = 1;
+    public static final byte KEYWORD = 2;
+    public static final byte UNARY = 3;
+    public static final byte BINARY = 4;
+    public static final byte ASSIGN = 5;
+    public static final byte IF = 6;
+    public static final byte CALL = 7;
+
+    static final int PERCENT = 1;     // NUMBER flag: written with '%'
+    static final int INTEGER = 2;     // NUMBER flag: written without a '.'
+
+    private final byte[] kind;
+    private final int[] a;
+    private final int[] b;
+    private final int[] c;
+    private final double[] numbers;
+    private final int[] args;
+    private final String[] strings;
+    private final int[] statements;
+
+    FlatAst(byte[] kind, int[] a, int[] b, int[] c, double[] numbers, int[] args,
+            String[] strings, int[] statements) {
+        this.kind = kind;
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.numbers = numbers;
+        this.args = args;
+        this.strings = strings;
+        this.statements = statements;
+    }
+
+    // -------------------------------------------------------------------------
+    // Accessors
+    // -------------------------------------------------------------------------
+
+    public int size()                { return kind.length; }
+    public int statementCount()      { return statements.length; }
+    public int statement(int i)      { return statements[i]; }
+    public int kind(int node)        { return kind[node]; }
+
+    // UNARY
+    public int operand(int node)     { return a[node]; }
+    // BINARY
+    public int left(int node)        { return a[node]; }
+    public int right(int node)       { return b[node]; }
+    // ASSIGN
+    public int value(int node)       { return b[node]; }
+    // IF
+    public int condition(int node)   { return a[node]; }
+    public int thenBranch(int node)  { return b[node]; }
+    public int elseBranch(int node)  { return c[node]; } // -1 if absent
+    // CALL
+    public int argCount(int node)    { return c[node]; }
+    public int arg(int node, int i)  { return args[b[node] + i]; }
+
+    /** Interned name of an IDENTIFIER, KEYWORD, ASSIGN target or CALL callee. */
+    public int nameId(int node)      { return a[node]; }
+    public String name(int node)     { return strings[a[node]]; }
+
+    /** Operator of a UNARY or BINARY node. */
+    public String op(int node) {
+        return strings[kind[node] == UNARY ? b[node] : c[node]];
+    }
+
+    /** A literal's value as written, before any percent scaling. */
+    public double number(int node)   { return numbers[a[node]]; }
+    public boolean isPercent(int node) { return (b[node] & PERCENT) != 0; }
+
+    /** Exact source spelling of a NUMBER literal. */
+    public String numberText(int node) {
+        return c[node] >= 0 ? strings[c[node]] : canonical(numbers[a[node]], (b[node] & INTEGER) != 0);
+    }
+
+    // raw ids and flags, for AstCodec
+    int opId(int node)               { return kind[node] == UNARY ? b[node] : c[node]; }
+    int textId(int node)             { return c[node]; }
+    boolean isInteger(int node)      { return (b[node] & INTEGER) != 0; }
+
+    public int stringCount()         { return strings.length; }
+    public String string(int id)     { return strings[id]; }
+
+    /** Bytes held by the arrays (array headers and the interned strings excluded). */
+    public long footprintBytes() {
+        return kind.length + 4L * (a.length + b.length + c.length + args.length + statements.length)
+                + 8L * numbers.length + 4L * strings.length;
+    }
+
+    // -------------------------------------------------------------------------
+    // Visitor
+    // -------------------------------------------------------------------------
+
+    /** One method per node kind; children are visited only if the visitor calls {@link #accept} on them. */
+    public interface Visitor<R> {
+        R visitNumber(FlatAst ast, int node);
+        R visitIdentifier(FlatAst ast, int node);
+        R visitKeyword(FlatAst ast, int node);
+        R visitUnary(FlatAst ast, int node);
+        R visitBinary(FlatAst ast, int node);
+        R visitAssign(FlatAst ast, int node);
+        R visitIf(FlatAst ast, int node);
+        R visitCall(FlatAst ast, int node);
+    }
+
+    public <R> R accept(int node, Visitor<R> visitor) {
+        switch (kind[node]) {
+            case NUMBER:     return visitor.visitNumber(this, node);
+            case IDENTIFIER: return visitor.visitIdentifier(this, node);
+            case KEYWORD:    return visitor.visitKeyword(this, node);
+            case UNARY:      return visitor.visitUnary(this, node);
+            case BINARY:     return visitor.visitBinary(this, node);
+            case ASSIGN:     return visitor.visitAssign(this, node);
+            case IF:         return visitor.visitIf(this, node);
+            case CALL:       return visitor.visitCall(this, node);
+            default:         throw new IllegalStateException("Bad node kind " + kind[node]);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Conversion to and from the object tree
+    // -------------------------------------------------------------------------
+
+    public ProgramNode toProgram() {
+        List<ASTNode> stmts = new ArrayList<>(statements.length);
+        for (int s : statements) stmts.add(toTree(s));
+        return new ProgramNode(stmts);
+    }
+
+    /**
+     * The object tree of {@code node}. Built bottom-up with explicit stacks,
+     * so a 5000-term sum or a long unary chain needs no deeper Java stack
+     * than a single literal.
+     */
+    public ASTNode toTree(int node) {
+        int[] work = new int[16];   // node ids to expand; ~id once their children are built
+        int pending = 0;
+        ASTNode[] built = new ASTNode[16];
+        int count = 0;
+        work[pending++] = node;
+        while (pending > 0) {
+            int n = work[--pending];
+            if (n >= 0) {
+                int children = childCount(n);
+                if (pending + children + 1 > work.length) {
+                    work = Arrays.copyOf(work, Math.max(work.length * 2, pending + children + 1));
+                }
+                work[pending++] = ~n;
+                // last child on top of the first, so the first is built first
+                for (int i = children - 1; i >= 0; i--) work[pending++] = child(n, i);
+                continue;
+            }
+            n = ~n;
+            int children = childCount(n);
+            count -= children;           // the children are now built[count .. count + children)
+            ASTNode tree = build(n, built, count);
+            if (count == built.length) built = Arrays.copyOf(built, count * 2);
+            built[count++] = tree;
+        }
+        return built[0];
+    }
+
+    private int childCount(int n) {
+        switch (kind[n]) {
+            case UNARY:  return 1;
+            case BINARY: return 2;
+            case ASSIGN: return 1;
+            case IF:     return c[n] < 0 ? 2 : 3;
+            case CALL:   return c[n];
+            default:     return 0;
+        }
+    }
+
+    private int child(int n, int i) {
+        switch (kind[n]) {
+            case UNARY:  return a[n];
+            case BINARY: return i == 0 ? a[n] : b[n];
+            case ASSIGN: return b[n];
+            case IF:     return i == 0 ? a[n] : i == 1 ? b[n] : c[n];
+            case CALL:   return args[b[n] + i];
+            default:     throw new IllegalStateException("Node " + n + " has no children");
+        }
+    }
+
+    /** Node {@code n} over its children, which are {@code built[from]} onwards. */
+    private ASTNode build(int n, ASTNode[] built, int from) {
+        switch (kind[n]) {
+            case NUMBER:     return new NumberNode(numberText(n), isPercent(n));
+            case IDENTIFIER: return new IdentifierNode(name(n));
+            case KEYWORD:    return new KeywordNode(name(n));
+            case UNARY:      return new UnaryOpNode(op(n), built[from]);
+            case BINARY:     return new BinaryOpNode(op(n), built[from], built[from + 1]);
+            case ASSIGN:     return new AssignNode(name(n), built[from]);
+            case IF:         return new IfNode(built[from], built[from + 1], c[n] < 0 ? null : built[from + 2]);
+            case CALL:       return new CallNode(name(n),
+                                     new ArrayList<>(Arrays.asList(built).subList(from, from + c[n])));
+            default:         throw new IllegalStateException("Bad node kind " + kind[n]);
+        }
+    }
+
+    /** Flattens an object tree, in the same post-order the parser reports nodes in. Iterative like {@link #toTree}. */
+    public static FlatAst of(ProgramNode program) {
+        Builder builder = new Builder();
+        for (ASTNode stmt : program.getStatements()) builder.statement(flatten(stmt, builder));
+        return builder.build();
+    }
+
+    private static int flatten(ASTNode root, Builder out) {
+        Deque<ASTNode> work = new ArrayDeque<>();
+        Deque<Boolean> expanded = new ArrayDeque<>();
+        int[] ids = new int[16];
+        int count = 0;
+        work.push(root);
+        expanded.push(false);
+        while (!work.isEmpty()) {
+            ASTNode node = work.pop();
+            if (!expanded.pop()) {
+                List<ASTNode> children = children(node);
+                work.push(node);
+                expanded.push(true);
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    work.push(children.get(i));
+                    expanded.push(false);
+                }
+                continue;
+            }
+            int arity = children(node).size();
+            count -= arity;              // the children's ids are now ids[count .. count + arity)
+            int id;
+            if (node instanceof NumberNode n)          id = out.number(n.getValue(), n.isPercent());
+            else if (node instanceof IdentifierNode i) id = out.identifier(i.getName());
+            else if (node instanceof KeywordNode k)    id = out.keyword(k.getKeyword());
+            else if (node instanceof UnaryOpNode u)    id = out.unary(u.getOp(), ids[count]);
+            else if (node instanceof BinaryOpNode b)   id = out.binary(b.getOp(), ids[count], ids[count + 1]);
+            else if (node instanceof AssignNode a)     id = out.assign(a.getName(), ids[count]);
+            else if (node instanceof IfNode i) {
+                int otherwise = i.getElseBranch() == null ? AstBuilder.NONE : ids[count + 2];
+                id = out.ifNode(ids[count], ids[count + 1], otherwise);
+            } else {
+                id = out.call(((CallNode) node).getCallee(), Arrays.copyOfRange(ids, count, count + arity), arity);
+            }
+            if (count == ids.length) ids = Arrays.copyOf(ids, count * 2);
+            ids[count++] = id;
+        }
+        return ids[0];
+    }
+
+    private static List<ASTNode> children(ASTNode node) {
+        if (node instanceof UnaryOpNode u)  return List.of(u.getOperand());
+        if (node instanceof BinaryOpNode b) return List.of(b.getLeft(), b.getRight());
+        if (node instanceof AssignNode a)   return List.of(a.getValue());
+        if (node instanceof IfNode i) {
+            return i.getElseBranch() == null ? List.of(i.getCondition(), i.getThenBranch())
+                                             : List.of(i.getCondition(), i.getThenBranch(), i.getElseBranch());
+        }
+        if (node instanceof CallNode c)     return c.getArgs();
+        if (node instanceof NumberNode || node instanceof IdentifierNode || node instanceof KeywordNode) {
+            return List.of();
+        }
+        throw new IllegalArgumentException("Cannot flatten " + node.getClass().getSimpleName());
+    }
+
+    /**
+     * Value of a literal as the lexers accept it: decimal digits of any
+     * script (e.g. {@code ١٢}), with an optional '.'. Such a literal never
+     * has the canonical spelling, so its text is always kept.
+     */
+    static double literalValue(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 128) {
+                StringBuilder ascii = new StringBuilder(text.length());
+                for (int j = 0; j < text.length(); j++) {
+                    char ch = text.charAt(j);
+                    ascii.append(Character.isDigit(ch) ? (char) ('0' + Character.digit(ch, 10)) : ch);
+                }
+                return Double.parseDouble(ascii.toString());
+            }
+        }
+        return Double.parseDouble(text);
+    }
+
+    /** The spelling a literal gets back from its value alone. */
+    private static String canonical(double value, boolean integer) {
+        return integer ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    // -------------------------------------------------------------------------
+    // Builder
+    // -------------------------------------------------------------------------
+
+    /** Appends nodes as the parser reports them; handles are node ids. */
+    public static final class Builder implements AstBuilder {
+        private byte[] kind = new byte[64];
+        private int[] a = new int[64];
+        private int[] b = new int[64];
+        private int[] c = new int[64];
+        private int size;
+
+        private double[] numbers = new double[16];
+        private int numberCount;
+        private int[] args = new int[16];
+        private int argCount;
+        private int[] statements = new int[16];
+        private int statementCount;
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        private int add(byte k, int x, int y, int z) {
+            if (size == kind.length) {
+                int n = size * 2;
+                kind = Arrays.copyOf(kind, n);
+                a = Arrays.copyOf(a, n);
+                b = Arrays.copyOf(b, n);
+                c = Arrays.copyOf(c, n);
+            }
+            kind[size] = k;
+            a[size] = x;
+            b[size] = y;
+            c[size] = z;
+            return size++;
+        }
+
+        private int intern(String s) {
+            Integer id = ids.get(s);
+            if (id != null) return id;
+            ids.put(s, strings.size());
+            strings.add(s);
+            return strings.size() - 1;
+        }
+
+        @Override
+        public int number(String text, boolean percent) {
+            double value = literalValue(text);
+            boolean integer = text.indexOf('.') < 0;
+            if (numberCount == numbers.length) numbers = Arrays.copyOf(numbers, numberCount * 2);
+            numbers[numberCount] = value;
+            int flags = (percent ? PERCENT : 0) | (integer ? INTEGER : 0);
+            int exact = text.equals(canonical(value, integer)) ? -1 : intern(text);
+            return add(NUMBER, numberCount++, flags, exact);
+        }
+
+        @Override public int identifier(String name)   { return add(IDENTIFIER, intern(name), 0, 0); }
+        @Override public int keyword(String keyword)   { return add(KEYWORD, intern(keyword), 0, 0); }
+        @Override public int unary(String op, int operand) { return add(UNARY, operand, intern(op), 0); }
+        @Override public int binary(String op, int left, int right) { return add(BINARY, left, right, intern(op)); }
+        @Override public int assign(String name, int value) { return add(ASSIGN, intern(name), value, 0); }
+
+        @Override
+        public int ifNode(int condition, int thenBranch, int elseBranch) {
+            return add(IF, condition, thenBranch, elseBranch);
+        }
+
+        @Override
+        public int call(String callee, int[] ids, int count) {
+            if (argCount + count > args.length) args = Arrays.copyOf(args, Math.max(args.length * 2, argCount + count));
+            System.arraycopy(ids, 0, args, argCount, count);
+            int node = add(CALL, intern(callee), argCount, count);
+            argCount += count;
+            return node;
+        }
+
+        /** Marks {@code node} as the next top-level statement. */
+        public void statement(int node) {
+            if (statementCount == statements.length) statements = Arrays.copyOf(statements, statementCount * 2);
+            statements[statementCount++] = node;
+        }
+
+        public FlatAst build() {
+            return new FlatAst(Arrays.copyOf(kind, size), Arrays.copyOf(a, size), Arrays.copyOf(b, size),
+                    Arrays.copyOf(c, size), Arrays.copyOf(numbers, numberCount), Arrays.copyOf(args, argCount),
+                    strings.toArray(new String[0]), Arrays.copyOf(statements, statementCount));
+        }
+    }
+}
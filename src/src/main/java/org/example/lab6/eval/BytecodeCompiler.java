@@ -0,0 +1,192 @@
+package org.example.lab6.eval;
+
+import org.example.lab6.ast.*;
+
+import java.util.*;
+
+/**
+ * Compiles a lab 6 {@link ProgramNode} to a {@link BytecodeProgram}, with
+ * the same semantics as {@link Evaluator}.
+ *
+ * A first pass collects the literals into a de-duplicated constant pool, so
+ * the frame layout (variables, constants, temporaries) is fixed before any
+ * code is emitted. Expressions are then compiled into a destination register:
+ * variable and literal operands are used in place, inner results go to
+ * temporaries allocated like a stack, and only the outermost operation of a
+ * statement writes the destination. Code generation recurses per level, so
+ * programs nested deeper than {@link Evaluator#MAX_DEPTH} are rejected.
+ */
+public final class BytecodeCompiler {
+
+    private final Variables variables;
+    private final Map<Double, Integer> constants = new LinkedHashMap<>();
+    private final List<String> callees = new ArrayList<>();
+    private int nextTemp;
+    private int maxTemp;
+
+    private int[] code = new int[64];
+    private int length = 0;
+
+    private BytecodeCompiler(ProgramNode program) {
+        this.variables = Variables.of(program);
+        Evaluator.checkDepth(variables); // code generation recurses per level
+    }
+
+    public static BytecodeProgram compile(ProgramNode program) {
+        return compile(program, Map.of());
+    }
+
+    public static BytecodeProgram compile(ProgramNode program, Map<String, CallHandler> handlers) {
+        BytecodeCompiler c = new BytecodeCompiler(program);
+        for (ASTNode stmt : program.getStatements()) c.collectConstants(stmt);
+        c.nextTemp = c.maxTemp = c.variables.size() + c.constants.size();
+        for (ASTNode stmt : program.getStatements()) c.statement(stmt);
+
+        double[] pool = new double[c.constants.size()];
+        int i = 0;
+        for (double k : c.constants.keySet()) pool[i++] = k;
+        CallHandler[] table = new CallHandler[c.callees.size()];
+        for (int h = 0; h < table.length; h++) {
+            table[h] = handlers.getOrDefault(c.callees.get(h), CallHandler.PASS_THROUGH);
+        }
+        return new BytecodeProgram(Arrays.copyOf(c.code, c.length), pool, table,
+                c.callees.toArray(new String[0]), c.variables, c.maxTemp);
+    }
+
+    private void collectConstants(ASTNode node) {
+        if (node instanceof NumberNode n) {
+            constants.putIfAbsent(Evaluator.literal(n), constants.size());
+        } else if (node instanceof AssignNode a) {
+            collectConstants(a.getValue());
+        } else if (node instanceof UnaryOpNode u) {
+            collectConstants(u.getOperand());
+        } else if (node instanceof BinaryOpNode b) {
+            collectConstants(b.getLeft());
+            collectConstants(b.getRight());
+        } else if (node instanceof IfNode i) {
+            collectConstants(i.getCondition());
+            collectConstants(i.getThenBranch());
+            if (i.getElseBranch() != null) collectConstants(i.getElseBranch());
+            else constants.putIfAbsent(0.0, constants.size());
+        } else if (node instanceof CallNode c) {
+            for (ASTNode arg : c.getArgs()) collectConstants(arg);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Statements and expressions
+    // -------------------------------------------------------------------------
+
+    private void statement(ASTNode node) {
+        if (node instanceof AssignNode a) {
+            into(a.getValue(), variables.slot(a.getName()));
+        } else {
+            int t = temp();
+            into(node, t); // expression statement: the value is discarded
+            nextTemp = t;
+        }
+    }
+
+    /** Emits code leaving the value of {@code node} in register {@code dst}. */
+    private void into(ASTNode node, int dst) {
+        int mark = nextTemp;
+        if (isLeaf(node)) {
+            emit(BytecodeProgram.MOV, dst, leaf(node));
+        } else if (node instanceof UnaryOpNode u) {
+            Operator.unary(u.getOp()); // validates
+            emit(BytecodeProgram.NEG, dst, operand(u.getOperand()));
+        } else if (node instanceof BinaryOpNode b) {
+            int l = operand(b.getLeft());
+            int r = operand(b.getRight());
+            emit(opcode(Operator.binary(b.getOp())), dst, l, r);
+        } else if (node instanceof IfNode i) {
+            int c = operand(i.getCondition());
+            emit(BytecodeProgram.JUMP_IF_FALSE, c, -1);
+            int toElse = length - 1;
+            nextTemp = mark;
+            into(i.getThenBranch(), dst);
+            emit(BytecodeProgram.JUMP, -1);
+            int toEnd = length - 1;
+            code[toElse] = length;
+            if (i.getElseBranch() != null) into(i.getElseBranch(), dst);
+            else emit(BytecodeProgram.MOV, dst, constant(0.0));
+            code[toEnd] = length;
+        } else if (node instanceof CallNode c) {
+            int argc = c.getArgs().size();
+            int base = nextTemp;
+            for (int j = 0; j < argc; j++) temp();
+            for (int j = 0; j < argc; j++) into(c.getArgs().get(j), base + j);
+            emit(BytecodeProgram.CALL, dst, callee(c.getCallee()), base, argc);
+        } else if (node instanceof AssignNode) {
+            // operands are read when their operation runs, not when they are
+            // compiled, which is only safe because expressions cannot assign
+            throw new Evaluator.EvaluationException("Assignment inside an expression cannot be compiled");
+        } else {
+            throw new Evaluator.EvaluationException("Cannot compile " + node.getClass().getSimpleName());
+        }
+        nextTemp = mark;
+    }
+
+    /** Register holding the value of {@code node}: leaves in place, anything else in a new temporary. */
+    private int operand(ASTNode node) {
+        if (isLeaf(node)) return leaf(node);
+        int t = temp();
+        into(node, t); // t stays reserved until the caller's own into() returns
+        return t;
+    }
+
+    private static boolean isLeaf(ASTNode node) {
+        return node instanceof NumberNode || node instanceof IdentifierNode || node instanceof KeywordNode;
+    }
+
+    private int leaf(ASTNode node) {
+        if (node instanceof NumberNode n) return constant(Evaluator.literal(n));
+        if (node instanceof IdentifierNode id) return variables.slot(id.getName());
+        return variables.slot(((KeywordNode) node).getKeyword());
+    }
+
+    private static int opcode(Operator op) {
+        switch (op) {
+            case ADD: return BytecodeProgram.ADD;
+            case SUB: return BytecodeProgram.SUB;
+            case MUL: return BytecodeProgram.MUL;
+            case DIV: return BytecodeProgram.DIV;
+            case GT:  return BytecodeProgram.GT;
+            case LT:  return BytecodeProgram.LT;
+            case GE:  return BytecodeProgram.GE;
+            case LE:  return BytecodeProgram.LE;
+            case EQ:  return BytecodeProgram.EQ;
+            case NE:  return BytecodeProgram.NE;
+            default:  throw new AssertionError(op);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Registers and emission
+    // -------------------------------------------------------------------------
+
+    private int constant(double value) {
+        return variables.size() + constants.get(value);
+    }
+
+    private int temp() {
+        int t = nextTemp++;
+        if (nextTemp > maxTemp) maxTemp = nextTemp;
+        return t;
+    }
+
+    private int callee(String name) {
+        int index = callees.indexOf(name);
+        if (index >= 0) return index;
+        callees.add(name);
+        return callees.size() - 1;
+    }
+
+    private void emit(int... words) {
+        if (length + words.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + words.length));
+        }
+        System.arraycopy(words, 0, code, length, words.length);
+        length += words.length;
+    }
+}
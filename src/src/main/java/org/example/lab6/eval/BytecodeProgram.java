@@ -0,0 +1,162 @@
+package org.example.lab6.eval;
+
+import java.util.Arrays;
+
+/**
+ * A lab 6 program compiled by {@link BytecodeCompiler} into one flat
+ * {@code int[]} of three-address instructions, run by a register machine
+ * over a single {@code double[]} frame.
+ *
+ * The frame holds the program's variables (slots {@code 0..variables-1}, as
+ * laid out by {@link Variables}), then the constant pool, then temporaries.
+ * Every operand is a frame index, so a variable or literal operand costs no
+ * instruction at all and an assignment writes its result straight into the
+ * variable's slot: {@code tax = income * 15%} is the single instruction
+ * {@code MUL tax, income, k0}. Jumps hold absolute code offsets and calls
+ * index a table of pre-bound {@link CallHandler}s.
+ *
+ * Instances are immutable and can be shared between threads; every thread
+ * passes its own frame.
+ */
+public final class BytecodeProgram {
+
+    // opcodes -----------------------------------------------------------------
+    static final int MOV = 0;            // d, a        f[d] = f[a]
+    static final int NEG = 1;            // d, a        f[d] = -f[a]
+    static final int ADD = 2;            // d, a, b     f[d] = f[a] + f[b]
+    static final int SUB = 3;
+    static final int MUL = 4;
+    static final int DIV = 5;
+    static final int GT = 6;             // d, a, b     f[d] = f[a] > f[b] ? 1 : 0
+    static final int LT = 7;
+    static final int GE = 8;
+    static final int LE = 9;
+    static final int EQ = 10;
+    static final int NE = 11;
+    static final int JUMP = 12;          // target
+    static final int JUMP_IF_FALSE = 13; // a, target   jump if f[a] == 0
+    static final int CALL = 14;          // d, h, base, argc   f[d] = handlers[h](f[base..base+argc))
+
+    static final String[] NAMES = {
+            "MOV", "NEG", "ADD", "SUB", "MUL", "DIV", "GT", "LT", "GE", "LE", "EQ", "NE",
+            "JUMP", "JUMP_IF_FALSE", "CALL"};
+
+    /** Number of inline operands of each opcode. */
+    static int operands(int opcode) {
+        switch (opcode) {
+            case JUMP:          return 1;
+            case MOV: case NEG: case JUMP_IF_FALSE: return 2;
+            case CALL:          return 4;
+            default:            return 3;
+        }
+    }
+
+    private final int[] code;
+    private final double[] constants;  // copied to frame[variables.size()...] on every run
+    private final CallHandler[] handlers;
+    private final String[] calleeNames;
+    private final Variables variables;
+    private final int frameSize;
+
+    BytecodeProgram(int[] code, double[] constants, CallHandler[] handlers, String[] calleeNames,
+                    Variables variables, int frameSize) {
+        this.code = code;
+        this.constants = constants;
+        this.handlers = handlers;
+        this.calleeNames = calleeNames;
+        this.variables = variables;
+        this.frameSize = frameSize;
+    }
+
+    public Variables variables() { return variables; }
+    public int frameSize()       { return frameSize; }
+    public int codeLength()      { return code.length; }
+    public int constantCount()   { return constants.length; }
+
+    /** A zeroed frame: variables first, then room for constants and temporaries. */
+    public double[] newEnvironment() {
+        return new double[frameSize];
+    }
+
+    /**
+     * Runs the program. {@code frame} must come from {@link #newEnvironment()}
+     * (or be at least {@link #frameSize()} long); its first
+     * {@code variables().size()} slots are the variables, the rest is scratch.
+     */
+    public void evaluate(double[] frame) {
+        if (frame.length < frameSize) {
+            throw new IllegalArgumentException("Frame has " + frame.length
+                    + " slots, program needs " + frameSize);
+        }
+        System.arraycopy(constants, 0, frame, variables.size(), constants.length);
+
+        final int[] code = this.code;
+        final double[] f = frame;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc]) {
+                case MOV: f[code[pc + 1]] = f[code[pc + 2]]; pc += 3; break;
+                case NEG: f[code[pc + 1]] = -f[code[pc + 2]]; pc += 3; break;
+                case ADD: f[code[pc + 1]] = f[code[pc + 2]] + f[code[pc + 3]]; pc += 4; break;
+                case SUB: f[code[pc + 1]] = f[code[pc + 2]] - f[code[pc + 3]]; pc += 4; break;
+                case MUL: f[code[pc + 1]] = f[code[pc + 2]] * f[code[pc + 3]]; pc += 4; break;
+                case DIV: f[code[pc + 1]] = f[code[pc + 2]] / f[code[pc + 3]]; pc += 4; break;
+                case GT:  f[code[pc + 1]] = f[code[pc + 2]] >  f[code[pc + 3]] ? 1.0 : 0.0; pc += 4; break;
+                case LT:  f[code[pc + 1]] = f[code[pc + 2]] <  f[code[pc + 3]] ? 1.0 : 0.0; pc += 4; break;
+                case GE:  f[code[pc + 1]] = f[code[pc + 2]] >= f[code[pc + 3]] ? 1.0 : 0.0; pc += 4; break;
+                case LE:  f[code[pc + 1]] = f[code[pc + 2]] <= f[code[pc + 3]] ? 1.0 : 0.0; pc += 4; break;
+                case EQ:  f[code[pc + 1]] = f[code[pc + 2]] == f[code[pc + 3]] ? 1.0 : 0.0; pc += 4; break;
+                case NE:  f[code[pc + 1]] = f[code[pc + 2]] != f[code[pc + 3]] ? 1.0 : 0.0; pc += 4; break;
+                case JUMP: pc = code[pc + 1]; break;
+                case JUMP_IF_FALSE:
+                    pc = f[code[pc + 1]] != 0.0 ? pc + 3 : code[pc + 2];
+                    break;
+                case CALL: {
+                    int base = code[pc + 3];
+                    f[code[pc + 1]] = handlers[code[pc + 2]].call(Arrays.copyOfRange(f, base, base + code[pc + 4]));
+                    pc += 5;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Bad opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    /** One instruction per line: offset, mnemonic, operands named where possible. */
+    public String disassemble() {
+        StringBuilder sb = new StringBuilder();
+        for (int pc = 0; pc < code.length; ) {
+            int op = code[pc];
+            sb.append(String.format("%4d  %-14s", pc, NAMES[op]));
+            switch (op) {
+                case JUMP:
+                    sb.append("-> ").append(code[pc + 1]);
+                    break;
+                case JUMP_IF_FALSE:
+                    sb.append(register(code[pc + 1])).append(" -> ").append(code[pc + 2]);
+                    break;
+                case CALL:
+                    sb.append(register(code[pc + 1])).append(", ").append(calleeNames[code[pc + 2]])
+                      .append('(').append(register(code[pc + 3])).append(", ").append(code[pc + 4]).append(" arg(s))");
+                    break;
+                default:
+                    for (int i = 1; i <= operands(op); i++) {
+                        if (i > 1) sb.append(", ");
+                        sb.append(register(code[pc + i]));
+                    }
+                    break;
+            }
+            sb.append('\n');
+            pc += 1 + operands(op);
+        }
+        return sb.toString();
+    }
+
+    private String register(int r) {
+        int vars = variables.size();
+        if (r < vars) return variables.name(r);
+        if (r < vars + constants.length) return String.valueOf(constants[r - vars]);
+        return "t" + (r - vars - constants.length);
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.lab6.eval;
+
+/**
+ * Implementation of a DSL call such as {@code save(x)}, {@code invest(x)} or
+ * {@code budget(x)}. The returned value is the value of the call expression.
+ */
+@FunctionalInterface
+public interface CallHandler {
+
+    /** Used for callees without a registered handler: the first argument, or 0. */
+    CallHandler PASS_THROUGH = args -> args.length > 0 ? args[0] : 0.0;
+
+    double call(double[] args);
+}
@@ -0,0 +1,459 @@
+package org.example.lab6.eval;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.*;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.classfile.TypeKind;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static java.lang.constant.ConstantDescs.*;
+
+/**
+ * Compiles lab 6 programs to JVM bytecode with the {@code java.lang.classfile}
+ * API and loads them as hidden classes implementing {@link GeneratedProgram},
+ * with the same semantics as {@link Evaluator}.
+ *
+ * Variables are read and written directly in the {@code double[]} environment,
+ * literals are {@code ldc2_w} constants, comparisons used as {@code if}
+ * conditions branch directly, and calls go through the {@link CallHandler}s
+ * passed to the generated constructor.
+ *
+ * No generated method holds more than {@link #NODES_PER_METHOD} AST nodes, at
+ * most about twenty bytes of bytecode each, which keeps every method below
+ * HotSpot's 8000-byte limit for JIT compilation however big the program is:
+ * <ul>
+ *   <li>statements are grouped into static part methods;</li>
+ *   <li>a statement too big on its own has its largest subexpressions moved
+ *       into static methods that return their value, bottom up, until what
+ *       is left fits (so deep expressions are fine as well);</li>
+ *   <li>{@code evaluate} reaches the parts through a tree of dispatcher
+ *       methods making at most {@link #CALLS_PER_METHOD} calls each.</li>
+ * </ul>
+ * The one thing that cannot be split is an argument list: a call with
+ * {@code NODES_PER_METHOD} or more arguments is rejected with an
+ * {@link Evaluator.EvaluationException}.
+ *
+ * {@link #compile(String, Map)} caches the generated class by the SHA-256 of
+ * the source, so a script seen again is only bound to new handlers, not parsed
+ * or compiled again. The cache keeps the {@link #CACHE_CAPACITY} most recently
+ * used classes; two threads missing on the same source may both compile it.
+ * Generated classes are not strongly held by their loader and are unloaded
+ * once evicted and no instance is reachable.
+ */
+public final class ClassFileCompiler {
+
+    public static final int NODES_PER_METHOD = 300;
+    public static final int CALLS_PER_METHOD = 256;
+    public static final int CACHE_CAPACITY = 256;
+
+    private static final ClassDesc CD_GENERATED = ClassDesc.of("org.example.lab6.eval.GeneratedRule");
+    private static final ClassDesc CD_PROGRAM = ClassDesc.of(GeneratedProgram.class.getName());
+    private static final ClassDesc CD_HANDLER = ClassDesc.of(CallHandler.class.getName());
+    private static final ClassDesc CD_DOUBLE_ARRAY = CD_double.arrayType();
+    private static final ClassDesc CD_HANDLER_ARRAY = CD_HANDLER.arrayType();
+    private static final MethodTypeDesc MTD_EVALUATE = MethodTypeDesc.of(CD_void, CD_DOUBLE_ARRAY);
+    private static final MethodTypeDesc MTD_PART = MethodTypeDesc.of(CD_void, CD_DOUBLE_ARRAY, CD_HANDLER_ARRAY);
+    private static final MethodTypeDesc MTD_EXPR = MethodTypeDesc.of(CD_double, CD_DOUBLE_ARRAY, CD_HANDLER_ARRAY);
+    private static final MethodTypeDesc MTD_INIT = MethodTypeDesc.of(CD_void, CD_HANDLER_ARRAY);
+    private static final MethodTypeDesc MTD_CALL = MethodTypeDesc.of(CD_double, CD_DOUBLE_ARRAY);
+
+    // locals of the static part, dispatch and expr methods
+    private static final int ENV = 0;
+    private static final int HANDLERS = 1;
+
+    // access order, guarded by itself
+    private static final LinkedHashMap<String, Compiled> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+
+    private ClassFileCompiler() {}
+
+    /** A generated class plus what is needed to instantiate it. */
+    private record Compiled(Variables variables, List<String> callees, MethodHandle constructor) {
+
+        JvmProgram bind(Map<String, CallHandler> handlers) {
+            CallHandler[] table = new CallHandler[callees.size()];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = handlers.getOrDefault(callees.get(i), CallHandler.PASS_THROUGH);
+            }
+            try {
+                return new JvmProgram(variables, (GeneratedProgram) constructor.invoke(table));
+            } catch (Throwable t) {
+                throw new IllegalStateException("Cannot instantiate generated program", t);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Entry points
+    // -------------------------------------------------------------------------
+
+    /** Parses and compiles {@code source}, reusing the class of an identical earlier source. */
+    public static JvmProgram compile(String source, Map<String, CallHandler> handlers) {
+        String key = sha256(source);
+        Compiled compiled;
+        synchronized (CACHE) {
+            compiled = CACHE.get(key);
+        }
+        if (compiled == null) {
+            compiled = generate(new Parser(TokenBuffer.of(source)).parse());
+            synchronized (CACHE) {
+                CACHE.put(key, compiled);
+                Iterator<Compiled> eldest = CACHE.values().iterator();
+                while (CACHE.size() > CACHE_CAPACITY) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return compiled.bind(handlers);
+    }
+
+    /** Compiles an already parsed program; not cached. */
+    public static JvmProgram compile(ProgramNode program, Map<String, CallHandler> handlers) {
+        return generate(program).bind(handlers);
+    }
+
+    public static int cacheSize() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    static String sha256(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // mandatory in every JDK
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Class generation
+    // -------------------------------------------------------------------------
+
+    private static Compiled generate(ProgramNode program) {
+        Variables variables = Variables.of(program);
+        List<String> callees = new ArrayList<>();
+        byte[] bytes = classBytes(program, variables, callees);
+        try {
+            MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle constructor = hidden.findConstructor(hidden.lookupClass(),
+                    MethodType.methodType(void.class, CallHandler[].class));
+            return new Compiled(variables, List.copyOf(callees), constructor);
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new IllegalStateException("Cannot load generated program", e);
+        }
+    }
+
+    /** The class file for {@code program}; fills {@code callees} with the handler table layout. */
+    static byte[] classBytes(ProgramNode program, Variables variables, List<String> callees) {
+        Layout layout = new Layout();
+        for (ASTNode stmt : program.getStatements()) layout.add(stmt);
+        List<List<ASTNode>> parts = split(program.getStatements(), layout);
+
+        return ClassFile.of().build(CD_GENERATED, clb -> {
+            clb.withFlags(ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL);
+            clb.withInterfaceSymbols(CD_PROGRAM);
+            clb.withField("handlers", CD_HANDLER_ARRAY, ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL);
+
+            clb.withMethodBody(INIT_NAME, MTD_INIT, ClassFile.ACC_PUBLIC, cob -> cob
+                    .aload(0)
+                    .invokespecial(CD_Object, INIT_NAME, MTD_void)
+                    .aload(0)
+                    .aload(1)
+                    .putfield(CD_GENERATED, "handlers", CD_HANDLER_ARRAY)
+                    .return_());
+
+            for (int p = 0; p < parts.size(); p++) {
+                List<ASTNode> part = parts.get(p);
+                clb.withMethodBody("part" + p, MTD_PART, ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC, cob -> {
+                    Emitter emitter = new Emitter(cob, variables, callees, layout.outlined);
+                    for (ASTNode stmt : part) emitter.statement(stmt);
+                    cob.return_();
+                });
+            }
+            for (int m = 0; m < layout.methods.size(); m++) {
+                ASTNode node = layout.methods.get(m);
+                clb.withMethodBody("expr" + m, MTD_EXPR, ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC, cob -> {
+                    new Emitter(cob, variables, callees, layout.outlined).inline(node);
+                    cob.dreturn();
+                });
+            }
+
+            // dispatchers: each level calls up to CALLS_PER_METHOD methods of the level below
+            List<String> level = new ArrayList<>();
+            for (int p = 0; p < parts.size(); p++) level.add("part" + p);
+            for (int depth = 0; level.size() > CALLS_PER_METHOD; depth++) {
+                List<String> above = new ArrayList<>();
+                for (int from = 0; from < level.size(); from += CALLS_PER_METHOD) {
+                    List<String> targets = level.subList(from, Math.min(from + CALLS_PER_METHOD, level.size()));
+                    String name = "dispatch" + depth + "_" + above.size();
+                    clb.withMethodBody(name, MTD_PART, ClassFile.ACC_PRIVATE | ClassFile.ACC_STATIC, cob -> {
+                        for (String target : targets) {
+                            cob.aload(ENV).aload(HANDLERS).invokestatic(CD_GENERATED, target, MTD_PART);
+                        }
+                        cob.return_();
+                    });
+                    above.add(name);
+                }
+                level = above;
+            }
+            List<String> top = level;
+            clb.withMethodBody("evaluate", MTD_EVALUATE, ClassFile.ACC_PUBLIC, cob -> {
+                for (String target : top) {
+                    cob.aload(1)
+                       .aload(0)
+                       .getfield(CD_GENERATED, "handlers", CD_HANDLER_ARRAY)
+                       .invokestatic(CD_GENERATED, target, MTD_PART);
+                }
+                cob.return_();
+            });
+        });
+    }
+
+    /** Groups consecutive statements into methods of at most NODES_PER_METHOD nodes (one statement at least). */
+    private static List<List<ASTNode>> split(List<ASTNode> statements, Layout layout) {
+        List<List<ASTNode>> parts = new ArrayList<>();
+        List<ASTNode> current = new ArrayList<>();
+        int nodes = 0;
+        for (ASTNode stmt : statements) {
+            int size = layout.size(stmt);
+            if (!current.isEmpty() && nodes + size > NODES_PER_METHOD) {
+                parts.add(current);
+                current = new ArrayList<>();
+                nodes = 0;
+            }
+            current.add(stmt);
+            nodes += size;
+        }
+        if (!current.isEmpty()) parts.add(current);
+        return parts;
+    }
+
+    /**
+     * Which subexpressions get a method of their own. Bottom up, a node's size
+     * is itself plus its children, counting an outlined child as one node (its
+     * call); while that is over NODES_PER_METHOD the largest child is outlined.
+     * Iterative, so any depth is fine.
+     */
+    private static final class Layout {
+        final Map<ASTNode, Integer> outlined = new IdentityHashMap<>(); // node -> index of its exprN method
+        final List<ASTNode> methods = new ArrayList<>();                // by exprN index
+        private final Map<ASTNode, Integer> sizes = new IdentityHashMap<>();
+
+        void add(ASTNode stmt) {
+            // reversed preorder visits every child before its parent
+            List<ASTNode> preorder = new ArrayList<>();
+            Deque<ASTNode> pending = new ArrayDeque<>();
+            pending.push(stmt);
+            while (!pending.isEmpty()) {
+                ASTNode node = pending.pop();
+                preorder.add(node);
+                for (ASTNode child : children(node)) pending.push(child);
+            }
+            for (int i = preorder.size() - 1; i >= 0; i--) measure(preorder.get(i));
+        }
+
+        int size(ASTNode node) {
+            return sizes.get(node);
+        }
+
+        private void measure(ASTNode node) {
+            List<ASTNode> children = children(node);
+            int size = 1;
+            for (ASTNode child : children) size += sizes.get(child);
+            if (size > NODES_PER_METHOD) {
+                List<ASTNode> largestFirst = new ArrayList<>(children);
+                largestFirst.sort(Comparator.comparingInt((ASTNode child) -> sizes.get(child)).reversed());
+                for (ASTNode child : largestFirst) {
+                    if (size <= NODES_PER_METHOD || sizes.get(child) == 1) break;
+                    size -= sizes.get(child) - 1;
+                    outlined.put(child, methods.size());
+                    methods.add(child);
+                }
+            }
+            if (size > NODES_PER_METHOD) { // only an argument list can be this long
+                throw new Evaluator.EvaluationException("Cannot compile a call with " + children.size()
+                        + " arguments, at most " + (NODES_PER_METHOD - 1) + " are supported");
+            }
+            sizes.put(node, size);
+        }
+
+        private static List<ASTNode> children(ASTNode node) {
+            if (node instanceof AssignNode a)   return List.of(a.getValue());
+            if (node instanceof UnaryOpNode u)  return List.of(u.getOperand());
+            if (node instanceof BinaryOpNode b) return List.of(b.getLeft(), b.getRight());
+            if (node instanceof IfNode i) {
+                return i.getElseBranch() == null
+                        ? List.of(i.getCondition(), i.getThenBranch())
+                        : List.of(i.getCondition(), i.getThenBranch(), i.getElseBranch());
+            }
+            if (node instanceof CallNode c)     return c.getArgs();
+            return List.of();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Code emission for one part method, static void partN(double[] env, CallHandler[] handlers),
+    // or one outlined expression, static double exprN(double[] env, CallHandler[] handlers)
+    // -------------------------------------------------------------------------
+
+    private static final class Emitter {
+        private final CodeBuilder cob;
+        private final Variables variables;
+        private final List<String> callees; // shared by all parts: index into the handler table
+        private final Map<ASTNode, Integer> outlined;
+
+        Emitter(CodeBuilder cob, Variables variables, List<String> callees, Map<ASTNode, Integer> outlined) {
+            this.cob = cob;
+            this.variables = variables;
+            this.callees = callees;
+            this.outlined = outlined;
+        }
+
+        void statement(ASTNode node) {
+            if (node instanceof AssignNode a) {
+                cob.aload(ENV).loadConstant(variables.slot(a.getName()));
+                expression(a.getValue());
+                cob.dastore();
+            } else if (node instanceof IfNode i) {
+                // value unused: branches become statements, no 0.0 for a missing else
+                Label otherwise = cob.newLabel();
+                Label end = cob.newLabel();
+                branchIfFalse(i.getCondition(), otherwise);
+                expression(i.getThenBranch());
+                cob.pop2().goto_(end).labelBinding(otherwise);
+                if (i.getElseBranch() != null) expression(i.getElseBranch()).pop2();
+                cob.labelBinding(end);
+            } else {
+                expression(node);
+                cob.pop2();
+            }
+        }
+
+        /** Leaves the value of {@code node} (a double) on the operand stack. */
+        CodeBuilder expression(ASTNode node) {
+            Integer method = outlined.get(node);
+            if (method != null) {
+                return cob.aload(ENV).aload(HANDLERS).invokestatic(CD_GENERATED, "expr" + method, MTD_EXPR);
+            }
+            return inline(node);
+        }
+
+        /** Like {@link #expression}, but emits {@code node} itself here even if it is outlined. */
+        CodeBuilder inline(ASTNode node) {
+            if (node instanceof NumberNode n) {
+                return cob.loadConstant(Evaluator.literal(n));
+            }
+            if (node instanceof IdentifierNode id) {
+                return load(id.getName());
+            }
+            if (node instanceof KeywordNode k) {
+                return load(k.getKeyword());
+            }
+            if (node instanceof UnaryOpNode u) {
+                Operator.unary(u.getOp()); // validates
+                expression(u.getOperand());
+                return cob.dneg();
+            }
+            if (node instanceof BinaryOpNode b) {
+                Operator op = Operator.binary(b.getOp());
+                switch (op) {
+                    case ADD: expression(b.getLeft()); expression(b.getRight()); return cob.dadd();
+                    case SUB: expression(b.getLeft()); expression(b.getRight()); return cob.dsub();
+                    case MUL: expression(b.getLeft()); expression(b.getRight()); return cob.dmul();
+                    case DIV: expression(b.getLeft()); expression(b.getRight()); return cob.ddiv();
+                    default: {
+                        Label no = cob.newLabel();
+                        Label end = cob.newLabel();
+                        compareAndBranchIfFalse(op, b.getLeft(), b.getRight(), no);
+                        return cob.dconst_1().goto_(end).labelBinding(no).dconst_0().labelBinding(end);
+                    }
+                }
+            }
+            if (node instanceof IfNode i) {
+                Label otherwise = cob.newLabel();
+                Label end = cob.newLabel();
+                branchIfFalse(i.getCondition(), otherwise);
+                expression(i.getThenBranch());
+                cob.goto_(end).labelBinding(otherwise);
+                if (i.getElseBranch() != null) expression(i.getElseBranch());
+                else cob.dconst_0();
+                return cob.labelBinding(end);
+            }
+            if (node instanceof CallNode c) {
+                List<ASTNode> args = c.getArgs();
+                cob.aload(HANDLERS).loadConstant(callee(c.getCallee())).aaload();
+                cob.loadConstant(args.size()).newarray(TypeKind.DOUBLE);
+                for (int j = 0; j < args.size(); j++) {
+                    cob.dup().loadConstant(j);
+                    expression(args.get(j));
+                    cob.dastore();
+                }
+                return cob.invokeinterface(CD_HANDLER, "call", MTD_CALL);
+            }
+            throw new Evaluator.EvaluationException("Cannot compile " + node.getClass().getSimpleName());
+        }
+
+        /** Jumps to {@code target} when {@code condition} is false (== 0); falls through otherwise. */
+        void branchIfFalse(ASTNode condition, Label target) {
+            if (condition instanceof BinaryOpNode b && !outlined.containsKey(condition)) {
+                Operator op = Operator.binary(b.getOp());
+                if (op != Operator.ADD && op != Operator.SUB && op != Operator.MUL && op != Operator.DIV) {
+                    compareAndBranchIfFalse(op, b.getLeft(), b.getRight(), target);
+                    return;
+                }
+            }
+            // generic: NaN != 0, so only an exact 0.0 is false
+            expression(condition);
+            cob.dconst_0().dcmpl().ifeq(target);
+        }
+
+        /**
+         * Evaluates {@code l op r} and jumps to {@code target} when it is false.
+         * dcmpl/dcmpg are picked as javac does, so NaN compares false except for !=.
+         */
+        private void compareAndBranchIfFalse(Operator op, ASTNode l, ASTNode r, Label target) {
+            expression(l);
+            expression(r);
+            switch (op) {
+                case GT: cob.dcmpl().ifle(target); break;
+                case GE: cob.dcmpl().iflt(target); break;
+                case LT: cob.dcmpg().ifge(target); break;
+                case LE: cob.dcmpg().ifgt(target); break;
+                case EQ: cob.dcmpl().ifne(target); break;
+                case NE: cob.dcmpl().ifeq(target); break;
+                default: throw new AssertionError(op);
+            }
+        }
+
+        private CodeBuilder load(String name) {
+            return cob.aload(ENV).loadConstant(variables.slot(name)).daload();
+        }
+
+        private int callee(String name) {
+            int index = callees.indexOf(name);
+            if (index >= 0) return index;
+            callees.add(name);
+            return callees.size() - 1;
+        }
+    }
+}
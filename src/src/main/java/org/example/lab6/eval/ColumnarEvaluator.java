@@ -0,0 +1,433 @@
+package org.example.lab6.eval;
+
+import org.example.lab6.ast.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar evaluator: runs one lab 6 program over many records at once, with
+ * one {@code double[]} column per variable instead of one environment per
+ * record. Results are the same as running {@link Evaluator} on every row.
+ *
+ * Rows are processed in blocks of {@link #BLOCK}. Within a block every
+ * statement runs over all rows before the next one starts, and every operator
+ * is a single tight loop over primitive arrays ({@code d[i] = a[i] * b[i]},
+ * or with a scalar for a literal operand). C2 compiles these loops to SIMD
+ * instructions. Intermediate results live in block-sized temporaries that stay
+ * in cache.
+ *
+ * {@code if} is evaluated with masks:
+ * <ul>
+ *   <li>the condition becomes a {@code boolean[]} mask for the block;</li>
+ *   <li>both branches are computed and blended row by row;</li>
+ *   <li>a branch that no row takes is skipped;</li>
+ *   <li>a branch containing a call only invokes the handler for the rows that
+ *       take it, so handlers see exactly the per-row calls.</li>
+ * </ul>
+ * Calls are made row by row, in statement-major order within a block, so
+ * handlers must not depend on the order of calls across different rows.
+ *
+ * Translation and execution recurse per level of nesting, and every level
+ * holds block-sized temporaries, so programs nested deeper than
+ * {@link Evaluator#MAX_DEPTH} are rejected with an
+ * {@link Evaluator.EvaluationException}.
+ *
+ * A ColumnarEvaluator is immutable; temporaries are allocated per
+ * {@link #evaluate} call, so one instance can be shared between threads
+ * working on different columns.
+ */
+public final class ColumnarEvaluator {
+
+    public static final int BLOCK = 1024; // rows per block: 8 KiB per temporary
+
+    private final Variables variables;
+    private final Statement[] statements;
+    private final int temps;
+    private final int masks;
+
+    public ColumnarEvaluator(ProgramNode program) {
+        this(program, Map.of());
+    }
+
+    public ColumnarEvaluator(ProgramNode program, Map<String, CallHandler> handlers) {
+        this.variables = Variables.of(program);
+        Evaluator.checkDepth(variables);
+        List<ASTNode> stmts = program.getStatements();
+        this.statements = new Statement[stmts.size()];
+        Allocator alloc = new Allocator();
+        for (int i = 0; i < statements.length; i++) {
+            ASTNode stmt = stmts.get(i);
+            if (stmt instanceof AssignNode a) {
+                statements[i] = new Statement(variables.slot(a.getName()), translate(a.getValue(), handlers, alloc, 0, 0));
+            } else {
+                statements[i] = new Statement(-1, translate(stmt, handlers, alloc, 0, 0));
+            }
+        }
+        this.temps = alloc.temps;
+        this.masks = alloc.masks;
+    }
+
+    public Variables variables() { return variables; }
+
+    /** One zeroed column of {@code rows} values per variable, indexed by slot. */
+    public double[][] newColumns(int rows) {
+        double[][] columns = new double[variables.size()][];
+        for (int s = 0; s < columns.length; s++) columns[s] = new double[rows];
+        return columns;
+    }
+
+    /**
+     * Runs the program on rows {@code [0, rows)}: {@code columns[slot][row]}
+     * is the value of variable {@code slot} in record {@code row}, and
+     * assignments overwrite the assigned column.
+     */
+    public void evaluate(double[][] columns, int rows) {
+        if (columns.length < variables.size()) {
+            throw new IllegalArgumentException("Got " + columns.length
+                    + " columns, program needs " + variables.size());
+        }
+        for (int s = 0; s < variables.size(); s++) {
+            if (columns[s].length < rows) {
+                throw new IllegalArgumentException("Column '" + variables.name(s) + "' has "
+                        + columns[s].length + " rows, expected " + rows);
+            }
+        }
+        Frame f = new Frame(columns, temps, masks);
+        for (f.from = 0; f.from < rows; f.from += BLOCK) {
+            f.n = Math.min(BLOCK, rows - f.from);
+            for (Statement stmt : statements) stmt.run(f);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Translation: temporaries and masks are allocated like a stack, by depth
+    // -------------------------------------------------------------------------
+
+    private static final class Allocator {
+        int temps;
+        int masks;
+
+        int temp(int index)  { temps = Math.max(temps, index + 1); return index; }
+        int masks(int index) { masks = Math.max(masks, index + 3); return index; }
+    }
+
+    /** {@code temp} is where this node writes its values; its children use the slots above it. */
+    private Expr translate(ASTNode node, Map<String, CallHandler> handlers, Allocator alloc, int temp, int mask) {
+        if (node instanceof NumberNode n) {
+            return new Const(alloc.temp(temp), Evaluator.literal(n));
+        }
+        if (node instanceof IdentifierNode id) {
+            return new Load(variables.slot(id.getName()));
+        }
+        if (node instanceof KeywordNode k) {
+            return new Load(variables.slot(k.getKeyword()));
+        }
+        if (node instanceof UnaryOpNode u) {
+            Operator.unary(u.getOp()); // validates
+            return new Negate(alloc.temp(temp), translate(u.getOperand(), handlers, alloc, temp + 1, mask));
+        }
+        if (node instanceof BinaryOpNode b) {
+            Operator op = Operator.binary(b.getOp());
+            Expr l = translate(b.getLeft(), handlers, alloc, temp + 1, mask);
+            Expr r = translate(b.getRight(), handlers, alloc, temp + 2, mask);
+            return new Binary(alloc.temp(temp), op, l, r);
+        }
+        if (node instanceof IfNode i) {
+            Expr condition = translate(i.getCondition(), handlers, alloc, temp + 1, mask + 3);
+            Expr then = translate(i.getThenBranch(), handlers, alloc, temp + 2, mask + 3);
+            Expr otherwise = i.getElseBranch() == null ? null
+                    : translate(i.getElseBranch(), handlers, alloc, temp + 3, mask + 3);
+            return new If(alloc.temp(temp), alloc.masks(mask), condition, then, otherwise);
+        }
+        if (node instanceof CallNode c) {
+            Expr[] args = new Expr[c.getArgs().size()];
+            for (int j = 0; j < args.length; j++) {
+                args[j] = translate(c.getArgs().get(j), handlers, alloc, temp + 1 + j, mask);
+            }
+            return new Call(alloc.temp(temp), handlers.getOrDefault(c.getCallee(), CallHandler.PASS_THROUGH), args);
+        }
+        throw new Evaluator.EvaluationException("Cannot evaluate " + node.getClass().getSimpleName());
+    }
+
+    // -------------------------------------------------------------------------
+    // Resolved tree
+    // -------------------------------------------------------------------------
+
+    /** Evaluation state for one block: rows {@code [from, from + n)} of the columns. */
+    private static final class Frame {
+        final double[][] columns;
+        final double[][] temps;
+        final boolean[][] masks;
+        int from;
+        int n;
+
+        Frame(double[][] columns, int temps, int masks) {
+            this.columns = columns;
+            this.temps = new double[temps][BLOCK];
+            this.masks = new boolean[masks][BLOCK];
+        }
+    }
+
+    private static final class Statement {
+        final int slot; // assigned column, -1 for an expression statement
+        final Expr value;
+
+        Statement(int slot, Expr value) { this.slot = slot; this.value = value; }
+
+        void run(Frame f) {
+            value.eval(f, null);
+            if (slot < 0) return;
+            double[] column = f.columns[slot];
+            if (value instanceof Const c) {
+                Arrays.fill(column, f.from, f.from + f.n, c.value);
+            } else {
+                System.arraycopy(value.array(f), value.offset(f), column, f.from, f.n);
+            }
+        }
+    }
+
+    /**
+     * A node's values for the current block are {@code array(f)[offset(f) + i]}
+     * after {@link #eval}. {@code active} marks the rows that actually reach the
+     * node (null for all of them); only calls look at it, because arithmetic on
+     * the other rows is harmless and cheaper than testing.
+     */
+    private abstract static class Expr {
+        final int temp;
+        final boolean hasCall;
+
+        Expr(int temp, boolean hasCall) { this.temp = temp; this.hasCall = hasCall; }
+
+        abstract void eval(Frame f, boolean[] active);
+
+        double[] array(Frame f) { return f.temps[temp]; }
+        int offset(Frame f)     { return 0; }
+    }
+
+    /** Evaluated lazily: operators take the scalar, other consumers get a filled temporary. */
+    private static final class Const extends Expr {
+        final double value;
+        Const(int temp, double value) { super(temp, false); this.value = value; }
+        void eval(Frame f, boolean[] active) { Arrays.fill(f.temps[temp], 0, f.n, value); }
+    }
+
+    /** Reads the column in place; nothing to evaluate. */
+    private static final class Load extends Expr {
+        final int slot;
+        Load(int slot) { super(-1, false); this.slot = slot; }
+        void eval(Frame f, boolean[] active) {}
+        double[] array(Frame f) { return f.columns[slot]; }
+        int offset(Frame f)     { return f.from; }
+    }
+
+    private static final class Negate extends Expr {
+        final Expr operand;
+        Negate(int temp, Expr operand) { super(temp, operand.hasCall); this.operand = operand; }
+        void eval(Frame f, boolean[] active) {
+            operand.eval(f, active);
+            double[] a = operand.array(f), d = f.temps[temp];
+            int ao = operand.offset(f), n = f.n;
+            for (int i = 0; i < n; i++) d[i] = -a[ao + i];
+        }
+    }
+
+    private static final class Binary extends Expr {
+        final Operator op;
+        final Expr l, r;
+
+        Binary(int temp, Operator op, Expr l, Expr r) {
+            super(temp, l.hasCall || r.hasCall);
+            this.op = op;
+            this.l = l;
+            this.r = r;
+        }
+
+        void eval(Frame f, boolean[] active) {
+            double[] d = f.temps[temp];
+            if (l instanceof Const lc && r instanceof Const rc) {
+                Arrays.fill(d, 0, f.n, op.apply(lc.value, rc.value));
+            } else if (r instanceof Const rc) {
+                l.eval(f, active);
+                Kernels.vectorScalar(op, l.array(f), l.offset(f), rc.value, d, f.n);
+            } else if (l instanceof Const lc) {
+                r.eval(f, active);
+                Kernels.scalarVector(op, lc.value, r.array(f), r.offset(f), d, f.n);
+            } else {
+                l.eval(f, active);
+                r.eval(f, active);
+                Kernels.vectorVector(op, l.array(f), l.offset(f), r.array(f), r.offset(f), d, f.n);
+            }
+        }
+    }
+
+    private static final class If extends Expr {
+        final int mask; // masks[mask]: condition, [mask + 1] / [mask + 2]: rows reaching then / else
+        final Expr condition, then, otherwise; // otherwise is null for a missing else (0)
+
+        If(int temp, int mask, Expr condition, Expr then, Expr otherwise) {
+            super(temp, condition.hasCall || then.hasCall || (otherwise != null && otherwise.hasCall));
+            this.mask = mask;
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+
+        void eval(Frame f, boolean[] active) {
+            int n = f.n;
+            double[] d = f.temps[temp];
+            condition.eval(f, active);
+            boolean[] m = f.masks[mask];
+            int taken = Kernels.mask(condition.array(f), condition.offset(f), m, n);
+
+            if (taken < n && otherwise == null) {
+                Arrays.fill(d, 0, n, 0.0);
+            } else if (taken < n) {
+                boolean[] reach = otherwise.hasCall ? Kernels.andNot(active, m, f.masks[mask + 2], n) : null;
+                otherwise.eval(f, reach);
+                copy(f, otherwise, d);
+            }
+            if (taken > 0) {
+                boolean[] reach = then.hasCall ? Kernels.and(active, m, f.masks[mask + 1], n) : null;
+                then.eval(f, reach);
+                if (taken == n) copy(f, then, d);
+                else Kernels.blend(m, then.array(f), then.offset(f), d, n);
+            }
+        }
+
+        private static void copy(Frame f, Expr e, double[] d) {
+            if (e instanceof Const c) Arrays.fill(d, 0, f.n, c.value);
+            else System.arraycopy(e.array(f), e.offset(f), d, 0, f.n);
+        }
+    }
+
+    /** Row by row, and only for the rows that reach the call; the others read 0. */
+    private static final class Call extends Expr {
+        final CallHandler handler;
+        final Expr[] args;
+
+        Call(int temp, CallHandler handler, Expr[] args) {
+            super(temp, true);
+            this.handler = handler;
+            this.args = args;
+        }
+
+        void eval(Frame f, boolean[] active) {
+            int n = f.n;
+            double[][] arrays = new double[args.length][];
+            int[] offsets = new int[args.length];
+            for (int j = 0; j < args.length; j++) {
+                args[j].eval(f, active); // a Const fills its temporary here
+                arrays[j] = args[j].array(f);
+                offsets[j] = args[j].offset(f);
+            }
+            double[] d = f.temps[temp];
+            for (int i = 0; i < n; i++) {
+                if (active != null && !active[i]) {
+                    d[i] = 0.0;
+                    continue;
+                }
+                double[] values = new double[args.length];
+                for (int j = 0; j < values.length; j++) values[j] = arrays[j][offsets[j] + i];
+                d[i] = handler.call(values);
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Kernels: one loop per operator, with the switch outside so each loop is
+    // a plain array expression the JIT can vectorize
+    // -------------------------------------------------------------------------
+
+    static final class Kernels {
+        private Kernels() {}
+
+        static void vectorVector(Operator op, double[] a, int ao, double[] b, int bo, double[] d, int n) {
+            switch (op) {
+                case ADD: for (int i = 0; i < n; i++) d[i] = a[ao + i] + b[bo + i]; break;
+                case SUB: for (int i = 0; i < n; i++) d[i] = a[ao + i] - b[bo + i]; break;
+                case MUL: for (int i = 0; i < n; i++) d[i] = a[ao + i] * b[bo + i]; break;
+                case DIV: for (int i = 0; i < n; i++) d[i] = a[ao + i] / b[bo + i]; break;
+                case GT:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] >  b[bo + i]); break;
+                case LT:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] <  b[bo + i]); break;
+                case GE:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] >= b[bo + i]); break;
+                case LE:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] <= b[bo + i]); break;
+                case EQ:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] == b[bo + i]); break;
+                case NE:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] != b[bo + i]); break;
+                default:  throw new IllegalArgumentException("Not a binary operator: " + op);
+            }
+        }
+
+        static void vectorScalar(Operator op, double[] a, int ao, double s, double[] d, int n) {
+            switch (op) {
+                case ADD: for (int i = 0; i < n; i++) d[i] = a[ao + i] + s; break;
+                case SUB: for (int i = 0; i < n; i++) d[i] = a[ao + i] - s; break;
+                case MUL: for (int i = 0; i < n; i++) d[i] = a[ao + i] * s; break;
+                case DIV: for (int i = 0; i < n; i++) d[i] = a[ao + i] / s; break;
+                case GT:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] >  s); break;
+                case LT:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] <  s); break;
+                case GE:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] >= s); break;
+                case LE:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] <= s); break;
+                case EQ:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] == s); break;
+                case NE:  for (int i = 0; i < n; i++) d[i] = bit(a[ao + i] != s); break;
+                default:  throw new IllegalArgumentException("Not a binary operator: " + op);
+            }
+        }
+
+        static void scalarVector(Operator op, double s, double[] b, int bo, double[] d, int n) {
+            switch (op) {
+                case ADD: for (int i = 0; i < n; i++) d[i] = s + b[bo + i]; break;
+                case SUB: for (int i = 0; i < n; i++) d[i] = s - b[bo + i]; break;
+                case MUL: for (int i = 0; i < n; i++) d[i] = s * b[bo + i]; break;
+                case DIV: for (int i = 0; i < n; i++) d[i] = s / b[bo + i]; break;
+                case GT:  for (int i = 0; i < n; i++) d[i] = bit(s >  b[bo + i]); break;
+                case LT:  for (int i = 0; i < n; i++) d[i] = bit(s <  b[bo + i]); break;
+                case GE:  for (int i = 0; i < n; i++) d[i] = bit(s >= b[bo + i]); break;
+                case LE:  for (int i = 0; i < n; i++) d[i] = bit(s <= b[bo + i]); break;
+                case EQ:  for (int i = 0; i < n; i++) d[i] = bit(s == b[bo + i]); break;
+                case NE:  for (int i = 0; i < n; i++) d[i] = bit(s != b[bo + i]); break;
+                default:  throw new IllegalArgumentException("Not a binary operator: " + op);
+            }
+        }
+
+        /**
+         * 1 or 0 as an int first: C2 turns that into a flag-setting instruction,
+         * whereas {@code cond ? 1.0 : 0.0} becomes a branch that mispredicts on
+         * unsorted data (about 5x slower here).
+         */
+        private static int bit(boolean b) { return b ? 1 : 0; }
+
+        /** {@code m[i] = c[i] != 0} (NaN is true, as in Evaluator); returns the number of true rows. */
+        static int mask(double[] c, int co, boolean[] m, int n) {
+            int taken = 0;
+            for (int i = 0; i < n; i++) {
+                int t = bit(c[co + i] != 0.0);
+                m[i] = t != 0;
+                taken += t;
+            }
+            return taken;
+        }
+
+        /** {@code d[i] = m[i] ? a[i] : d[i]}. */
+        static void blend(boolean[] m, double[] a, int ao, double[] d, int n) {
+            for (int i = 0; i < n; i++) d[i] = m[i] ? a[ao + i] : d[i];
+        }
+
+        /** Rows that are active and in {@code m}; {@code active} null means all rows. */
+        static boolean[] and(boolean[] active, boolean[] m, boolean[] d, int n) {
+            if (active == null) return m;
+            for (int i = 0; i < n; i++) d[i] = active[i] & m[i];
+            return d;
+        }
+
+        static boolean[] andNot(boolean[] active, boolean[] m, boolean[] d, int n) {
+            if (active == null) {
+                for (int i = 0; i < n; i++) d[i] = !m[i];
+            } else {
+                for (int i = 0; i < n; i++) d[i] = active[i] & !m[i];
+            }
+            return d;
+        }
+    }
+}
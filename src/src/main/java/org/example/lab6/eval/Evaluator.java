@@ -0,0 +1,226 @@
+package org.example.lab6.eval;
+
+import org.example.lab6.ast.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree-walking evaluator for lab 6 programs.
+ *
+ * The AST is translated once into a tree of pre-resolved nodes: variables are
+ * slot indices into a {@code double[]} environment (see {@link Variables}),
+ * literals are parsed to doubles, operators are {@link Operator}s and calls
+ * are bound to their {@link CallHandler}. {@link #evaluate(double[])} then
+ * walks that tree with no string handling at all, so one Evaluator can be run
+ * over millions of environments.
+ *
+ * Semantics:
+ * <ul>
+ *   <li>all values are doubles; a variable never assigned reads as its
+ *       environment value (0 in a fresh environment);</li>
+ *   <li>{@code n%} is {@code n / 100}, so {@code income * 15%} is 15% of income;</li>
+ *   <li>comparisons yield 1 or 0, and a condition is true when non-zero;</li>
+ *   <li>{@code if} without {@code else} is 0 when the condition is false;</li>
+ *   <li>a call evaluates its arguments left to right and returns the handler's
+ *       result; callees without a handler use {@link CallHandler#PASS_THROUGH}.</li>
+ * </ul>
+ *
+ * Translation and evaluation recurse once per level of nesting, so programs
+ * nested deeper than {@link #MAX_DEPTH} are rejected with an
+ * {@link EvaluationException} up front instead of overflowing the stack.
+ *
+ * An Evaluator is immutable and can be shared between threads as long as the
+ * handlers can; each thread passes its own environment.
+ */
+public final class Evaluator {
+
+    /**
+     * Deepest nesting (see {@link Variables#depth()}) accepted by the back ends
+     * that recurse per level. The most stack-hungry of them overflows a default
+     * 1 MiB thread stack at about 1000 levels; this leaves room for the caller.
+     */
+    public static final int MAX_DEPTH = 500;
+
+    private final Variables variables;
+    private final Node[] statements;
+
+    public Evaluator(ProgramNode program) {
+        this(program, Map.of());
+    }
+
+    public Evaluator(ProgramNode program, Map<String, CallHandler> handlers) {
+        this.variables = Variables.of(program);
+        checkDepth(variables);
+        List<ASTNode> stmts = program.getStatements();
+        this.statements = new Node[stmts.size()];
+        for (int i = 0; i < statements.length; i++) {
+            statements[i] = translate(stmts.get(i), handlers);
+        }
+    }
+
+    public Variables variables()     { return variables; }
+    public double[] newEnvironment() { return variables.newEnvironment(); }
+
+    /** Runs every statement against {@code env}; assignments write into it. */
+    public void evaluate(double[] env) {
+        if (env.length < variables.size()) {
+            throw new IllegalArgumentException("Environment has " + env.length
+                    + " slots, program needs " + variables.size());
+        }
+        for (Node stmt : statements) stmt.eval(env);
+    }
+
+    /** Value of a numeric literal: percentages are divided by 100. */
+    public static double literal(NumberNode n) {
+        double v = Double.parseDouble(n.getValue());
+        return n.isPercent() ? v / 100.0 : v;
+    }
+
+    /** Throws an EvaluationException if the program is nested deeper than {@link #MAX_DEPTH}. */
+    static void checkDepth(Variables variables) {
+        if (variables.depth() > MAX_DEPTH) {
+            throw new EvaluationException("Program is nested " + variables.depth() + " levels deep, at most "
+                    + MAX_DEPTH + " are supported; split long expressions over several assignments");
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Translation
+    // -------------------------------------------------------------------------
+
+    private Node translate(ASTNode node, Map<String, CallHandler> handlers) {
+        if (node instanceof NumberNode n) {
+            return new Const(literal(n));
+        }
+        if (node instanceof IdentifierNode id) {
+            return new Load(variables.slot(id.getName()));
+        }
+        if (node instanceof KeywordNode k) {
+            return new Load(variables.slot(k.getKeyword()));
+        }
+        if (node instanceof AssignNode a) {
+            return new Store(variables.slot(a.getName()), translate(a.getValue(), handlers));
+        }
+        if (node instanceof UnaryOpNode u) {
+            Operator.unary(u.getOp()); // validates
+            return new Negate(translate(u.getOperand(), handlers));
+        }
+        if (node instanceof BinaryOpNode b) {
+            Node l = translate(b.getLeft(), handlers);
+            Node r = translate(b.getRight(), handlers);
+            switch (Operator.binary(b.getOp())) {
+                case ADD: return new Add(l, r);
+                case SUB: return new Sub(l, r);
+                case MUL: return new Mul(l, r);
+                case DIV: return new Div(l, r);
+                default:  return new Compare(Operator.binary(b.getOp()), l, r);
+            }
+        }
+        if (node instanceof IfNode i) {
+            return new If(translate(i.getCondition(), handlers),
+                          translate(i.getThenBranch(), handlers),
+                          i.getElseBranch() == null ? new Const(0.0) : translate(i.getElseBranch(), handlers));
+        }
+        if (node instanceof CallNode c) {
+            Node[] args = new Node[c.getArgs().size()];
+            for (int j = 0; j < args.length; j++) args[j] = translate(c.getArgs().get(j), handlers);
+            return new Call(handlers.getOrDefault(c.getCallee(), CallHandler.PASS_THROUGH), args);
+        }
+        throw new EvaluationException("Cannot evaluate " + node.getClass().getSimpleName());
+    }
+
+    // -------------------------------------------------------------------------
+    // Resolved tree
+    // -------------------------------------------------------------------------
+
+    private abstract static class Node {
+        abstract double eval(double[] env);
+    }
+
+    private static final class Const extends Node {
+        final double value;
+        Const(double value) { this.value = value; }
+        double eval(double[] env) { return value; }
+    }
+
+    private static final class Load extends Node {
+        final int slot;
+        Load(int slot) { this.slot = slot; }
+        double eval(double[] env) { return env[slot]; }
+    }
+
+    private static final class Store extends Node {
+        final int slot;
+        final Node value;
+        Store(int slot, Node value) { this.slot = slot; this.value = value; }
+        double eval(double[] env) { return env[slot] = value.eval(env); }
+    }
+
+    private static final class Negate extends Node {
+        final Node operand;
+        Negate(Node operand) { this.operand = operand; }
+        double eval(double[] env) { return -operand.eval(env); }
+    }
+
+    private static final class Add extends Node {
+        final Node l, r;
+        Add(Node l, Node r) { this.l = l; this.r = r; }
+        double eval(double[] env) { return l.eval(env) + r.eval(env); }
+    }
+
+    private static final class Sub extends Node {
+        final Node l, r;
+        Sub(Node l, Node r) { this.l = l; this.r = r; }
+        double eval(double[] env) { return l.eval(env) - r.eval(env); }
+    }
+
+    private static final class Mul extends Node {
+        final Node l, r;
+        Mul(Node l, Node r) { this.l = l; this.r = r; }
+        double eval(double[] env) { return l.eval(env) * r.eval(env); }
+    }
+
+    private static final class Div extends Node {
+        final Node l, r;
+        Div(Node l, Node r) { this.l = l; this.r = r; }
+        double eval(double[] env) { return l.eval(env) / r.eval(env); }
+    }
+
+    private static final class Compare extends Node {
+        final Operator op;
+        final Node l, r;
+        Compare(Operator op, Node l, Node r) { this.op = op; this.l = l; this.r = r; }
+        double eval(double[] env) { return op.apply(l.eval(env), r.eval(env)); }
+    }
+
+    private static final class If extends Node {
+        final Node condition, then, otherwise;
+        If(Node condition, Node then, Node otherwise) {
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+        double eval(double[] env) { return condition.eval(env) != 0.0 ? then.eval(env) : otherwise.eval(env); }
+    }
+
+    private static final class Call extends Node {
+        final CallHandler handler;
+        final Node[] args;
+        Call(CallHandler handler, Node[] args) { this.handler = handler; this.args = args; }
+        double eval(double[] env) {
+            double[] values = new double[args.length];
+            for (int i = 0; i < args.length; i++) values[i] = args[i].eval(env);
+            return handler.call(values);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+
+    /** Thrown when a program contains a construct the evaluator cannot run. */
+    public static class EvaluationException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public EvaluationException(String message) { super(message); }
+    }
+}
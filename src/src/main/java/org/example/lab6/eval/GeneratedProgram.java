@@ -0,0 +1,9 @@
+package org.example.lab6.eval;
+
+/**
+ * Entry point implemented by the hidden classes {@link ClassFileCompiler}
+ * generates. {@code env} is laid out as the program's {@link Variables}.
+ */
+public interface GeneratedProgram {
+    void evaluate(double[] env);
+}
@@ -0,0 +1,31 @@
+package org.example.lab6.eval;
+
+/**
+ * A lab 6 program compiled to a JVM hidden class by {@link ClassFileCompiler}:
+ * its {@link #evaluate} is ordinary bytecode that the JIT compiles like any
+ * hand-written Java method.
+ */
+public final class JvmProgram {
+
+    private final Variables variables;
+    private final GeneratedProgram code;
+
+    JvmProgram(Variables variables, GeneratedProgram code) {
+        this.variables = variables;
+        this.code = code;
+    }
+
+    public Variables variables()     { return variables; }
+    public double[] newEnvironment() { return variables.newEnvironment(); }
+
+    /** The generated class instance, for callers that want to skip the length check. */
+    public GeneratedProgram code()   { return code; }
+
+    public void evaluate(double[] env) {
+        if (env.length < variables.size()) {
+            throw new IllegalArgumentException("Environment has " + env.length
+                    + " slots, program needs " + variables.size());
+        }
+        code.evaluate(env);
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.lab6.eval;
+
+/**
+ * Arithmetic and comparison operators of the DSL. Comparisons yield 1.0 for
+ * true and 0.0 for false, so they can be used as numbers and as conditions.
+ */
+public enum Operator {
+    ADD("+"), SUB("-"), MUL("*"), DIV("/"),
+    GT(">"), LT("<"), GE(">="), LE("<="), EQ("=="), NE("!="),
+    NEG("-"); // unary
+
+    private final String symbol;
+
+    Operator(String symbol) { this.symbol = symbol; }
+
+    public String symbol() { return symbol; }
+
+    /** The binary operator spelled {@code op} in a {@code BinaryOpNode}. */
+    public static Operator binary(String op) {
+        switch (op) {
+            case "+":  return ADD;
+            case "-":  return SUB;
+            case "*":  return MUL;
+            case "/":  return DIV;
+            case ">":  return GT;
+            case "<":  return LT;
+            case ">=": return GE;
+            case "<=": return LE;
+            case "==": return EQ;
+            case "!=": return NE;
+            default:   throw new IllegalArgumentException("Unknown binary operator: " + op);
+        }
+    }
+
+    /** The unary operator spelled {@code op} in a {@code UnaryOpNode}. */
+    public static Operator unary(String op) {
+        if (op.equals("-")) return NEG;
+        throw new IllegalArgumentException("Unknown unary operator: " + op);
+    }
+
+    public double apply(double l, double r) {
+        switch (this) {
+            case ADD: return l + r;
+            case SUB: return l - r;
+            case MUL: return l * r;
+            case DIV: return l / r;
+            case GT:  return l >  r ? 1.0 : 0.0;
+            case LT:  return l <  r ? 1.0 : 0.0;
+            case GE:  return l >= r ? 1.0 : 0.0;
+            case LE:  return l <= r ? 1.0 : 0.0;
+            case EQ:  return l == r ? 1.0 : 0.0;
+            case NE:  return l != r ? 1.0 : 0.0;
+            case NEG: return -l;
+            default:  throw new AssertionError(this);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package org.example.lab6.eval;
+
+import org.example.lab6.ast.*;
+
+import java.util.*;
+
+/**
+ * AST-to-AST optimization pass for lab 6 programs. The result runs on any of
+ * the evaluators and computes exactly the same values and calls as the input.
+ *
+ * <ol>
+ *   <li><b>Constant folding</b>: operators on literals (percentages included)
+ *       are computed with {@link Operator#apply}, so the folded value is
+ *       bit-for-bit the evaluator's.</li>
+ *   <li><b>Algebraic identities</b>, only those exact in IEEE 754:
+ *       {@code x*1}, {@code x/1}, {@code x-0}, {@code x+(-0)} become {@code x};
+ *       {@code x*-1}, {@code x/-1} become {@code -x}; {@code --x} becomes
+ *       {@code x}. ({@code x+0} and {@code x*0} are kept: they differ for
+ *       {@code -0.0}, NaN and infinities.)</li>
+ *   <li><b>Dead code</b>: an {@code if} with a constant condition becomes its
+ *       taken branch. Top-level expression statements without calls are
+ *       dropped, and so is a call-free {@code else} of an {@code if}
+ *       statement, because their values are discarded.</li>
+ *   <li><b>Common subexpressions</b>: a call-free arithmetic expression that
+ *       occurs several times with the same variable values is computed once
+ *       into a temporary ({@code $t0}, {@code $t1}, ...; {@code $} cannot
+ *       occur in source, so these never clash with user variables). The
+ *       temporary is assigned just before the first statement that uses it.
+ *       Every assignment starts a new version of a variable, so
+ *       {@code income - expense} before and after {@code income = ...} are
+ *       different expressions. An expression is only hoisted if that saves
+ *       nodes: {@code count * size > size + 1 + count}.</li>
+ * </ol>
+ *
+ * The pass recurses per level of nesting, so programs nested deeper than
+ * {@link Evaluator#MAX_DEPTH} are rejected with an
+ * {@link Evaluator.EvaluationException}, as the evaluators would reject them.
+ *
+ * Calls are never removed, duplicated or reordered. Hoisting can move pure
+ * arithmetic out of an {@code if} branch, which is harmless: it cannot fail
+ * or have side effects.
+ */
+public final class Optimizer {
+
+    public static final String TEMP_PREFIX = "$t";
+
+    private Optimizer() {}
+
+    /** The optimized program and the node counts of the pass. */
+    public static final class Result {
+        private final ProgramNode program;
+        private final int nodesBefore;
+        private final int nodesAfter;
+        private final int temporaries;
+
+        Result(ProgramNode program, int nodesBefore, int nodesAfter, int temporaries) {
+            this.program = program;
+            this.nodesBefore = nodesBefore;
+            this.nodesAfter = nodesAfter;
+            this.temporaries = temporaries;
+        }
+
+        public ProgramNode program() { return program; }
+        public int nodesBefore()     { return nodesBefore; }
+        public int nodesAfter()      { return nodesAfter; }
+        public int temporaries()     { return temporaries; }
+
+        @Override
+        public String toString() {
+            return "nodes " + nodesBefore + " -> " + nodesAfter + " ("
+                    + temporaries + " temporar" + (temporaries == 1 ? "y" : "ies") + ")";
+        }
+    }
+
+    public static Result optimize(ProgramNode program) {
+        Variables variables = Variables.of(program);
+        Evaluator.checkDepth(variables); // fold and Cse.visit recurse per level
+        List<ASTNode> folded = new ArrayList<>();
+        for (ASTNode stmt : program.getStatements()) {
+            ASTNode s = foldStatement(stmt);
+            if (s != null) folded.add(s);
+        }
+        Cse cse = new Cse(variables);
+        ProgramNode optimized = new ProgramNode(cse.run(folded));
+        return new Result(optimized, countNodes(program), countNodes(optimized), cse.temps);
+    }
+
+    /** Number of AST nodes under {@code node}, not counting a {@link ProgramNode} root itself. Any depth. */
+    public static int countNodes(ASTNode node) {
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        if (node instanceof ProgramNode p) pending.addAll(p.getStatements());
+        else if (node != null) pending.push(node);
+        int n = 0;
+        while (!pending.isEmpty()) {
+            ASTNode next = pending.pop();
+            n++;
+            if (next instanceof AssignNode a) {
+                pending.push(a.getValue());
+            } else if (next instanceof UnaryOpNode u) {
+                pending.push(u.getOperand());
+            } else if (next instanceof BinaryOpNode b) {
+                pending.push(b.getLeft());
+                pending.push(b.getRight());
+            } else if (next instanceof IfNode i) {
+                pending.push(i.getCondition());
+                pending.push(i.getThenBranch());
+                if (i.getElseBranch() != null) pending.push(i.getElseBranch());
+            } else if (next instanceof CallNode c) {
+                c.getArgs().forEach(pending::push);
+            }
+        }
+        return n;
+    }
+
+    // -------------------------------------------------------------------------
+    // Folding, identities and dead branches
+    // -------------------------------------------------------------------------
+
+    /** Folded statement, or null if it has no effect. */
+    private static ASTNode foldStatement(ASTNode stmt) {
+        ASTNode s = fold(stmt);
+        if (s instanceof AssignNode) return s;
+        if (s instanceof IfNode i && i.getElseBranch() != null && !hasCall(i.getElseBranch())) {
+            s = new IfNode(i.getCondition(), i.getThenBranch(), null);
+        }
+        return hasCall(s) ? s : null;
+    }
+
+    private static ASTNode fold(ASTNode node) {
+        if (node instanceof AssignNode a) {
+            return new AssignNode(a.getName(), fold(a.getValue()));
+        }
+        if (node instanceof UnaryOpNode u) {
+            Operator.unary(u.getOp()); // validates
+            return negate(fold(u.getOperand()));
+        }
+        if (node instanceof BinaryOpNode b) {
+            Operator op = Operator.binary(b.getOp());
+            ASTNode l = fold(b.getLeft());
+            ASTNode r = fold(b.getRight());
+            Double lv = constant(l);
+            Double rv = constant(r);
+            if (lv != null && rv != null) return number(op.apply(lv, rv));
+            switch (op) {
+                case MUL:
+                    if (is(rv, 1.0))  return l;
+                    if (is(lv, 1.0))  return r;
+                    if (is(rv, -1.0)) return negate(l);
+                    if (is(lv, -1.0)) return negate(r);
+                    break;
+                case DIV:
+                    if (is(rv, 1.0))  return l;
+                    if (is(rv, -1.0)) return negate(l);
+                    break;
+                case SUB:
+                    if (is(rv, 0.0))  return l;
+                    break;
+                case ADD:
+                    if (is(rv, -0.0)) return l;
+                    if (is(lv, -0.0)) return r;
+                    break;
+                default:
+                    break;
+            }
+            return new BinaryOpNode(b.getOp(), l, r);
+        }
+        if (node instanceof IfNode i) {
+            ASTNode condition = fold(i.getCondition());
+            Double c = constant(condition);
+            if (c != null) {
+                if (c != 0.0) return fold(i.getThenBranch()); // NaN is true, as in Evaluator
+                return i.getElseBranch() == null ? number(0.0) : fold(i.getElseBranch());
+            }
+            return new IfNode(condition, fold(i.getThenBranch()),
+                    i.getElseBranch() == null ? null : fold(i.getElseBranch()));
+        }
+        if (node instanceof CallNode c) {
+            List<ASTNode> args = new ArrayList<>(c.getArgs().size());
+            for (ASTNode arg : c.getArgs()) args.add(fold(arg));
+            return new CallNode(c.getCallee(), args);
+        }
+        return node; // numbers, identifiers, keywords
+    }
+
+    private static ASTNode negate(ASTNode operand) {
+        Double v = constant(operand);
+        if (v != null) return number(-v);
+        if (operand instanceof UnaryOpNode u) return u.getOperand(); // only '-' exists
+        return new UnaryOpNode("-", operand);
+    }
+
+    private static Double constant(ASTNode node) {
+        return node instanceof NumberNode n ? Evaluator.literal(n) : null;
+    }
+
+    /** Bitwise comparison, so 0.0 and -0.0 are told apart. */
+    private static boolean is(Double value, double expected) {
+        return value != null && Double.doubleToLongBits(value) == Double.doubleToLongBits(expected);
+    }
+
+    /** A folded literal; Double.toString round-trips exactly through Evaluator.literal. */
+    private static NumberNode number(double value) {
+        return new NumberNode(Double.toString(value), false);
+    }
+
+    private static boolean hasCall(ASTNode node) {
+        if (node == null) return false;
+        if (node instanceof CallNode) return true;
+        if (node instanceof AssignNode a)   return hasCall(a.getValue());
+        if (node instanceof UnaryOpNode u)  return hasCall(u.getOperand());
+        if (node instanceof BinaryOpNode b) return hasCall(b.getLeft()) || hasCall(b.getRight());
+        if (node instanceof IfNode i) {
+            return hasCall(i.getCondition()) || hasCall(i.getThenBranch()) || hasCall(i.getElseBranch());
+        }
+        return false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Common subexpressions, by value numbering over versioned variables
+    // -------------------------------------------------------------------------
+
+    private static final class Candidate {
+        final String key;
+        final int size;
+        final List<String> children = new ArrayList<>(2); // keys of candidate operands
+        int count;
+        boolean hoisted;
+        String temp; // set once defined while rewriting
+
+        Candidate(String key, int size) { this.key = key; this.size = size; }
+    }
+
+    /** A rewritten node and its value key (null if it is not a pure expression). */
+    private record Keyed(ASTNode node, String key) {}
+
+    private static final class Cse {
+        private final Set<String> names;
+        private final Map<String, Candidate> candidates = new HashMap<>();
+        private final List<ASTNode> pending = new ArrayList<>(); // temporaries to define before the statement
+        private Map<String, Integer> versions;
+        int temps;
+
+        Cse(Variables variables) {
+            this.names = new HashSet<>(variables.names());
+        }
+
+        List<ASTNode> run(List<ASTNode> statements) {
+            versions = new HashMap<>();
+            for (ASTNode stmt : statements) {
+                if (!hasNestedAssign(stmt)) visit(valueOf(stmt), true);
+                assigned(stmt);
+            }
+            choose();
+
+            versions = new HashMap<>();
+            List<ASTNode> out = new ArrayList<>(statements.size());
+            for (ASTNode stmt : statements) {
+                if (hasNestedAssign(stmt)) {
+                    out.add(stmt);
+                } else {
+                    ASTNode value = visit(valueOf(stmt), false).node();
+                    out.addAll(pending);
+                    pending.clear();
+                    out.add(stmt instanceof AssignNode a ? new AssignNode(a.getName(), value) : value);
+                }
+                assigned(stmt);
+            }
+            return out;
+        }
+
+        /**
+         * Computes the value key of {@code node}. When counting, records every
+         * candidate occurrence; otherwise returns the node with hoisted
+         * expressions replaced by their temporaries (defining them on first use).
+         */
+        private Keyed visit(ASTNode node, boolean counting) {
+            if (node instanceof NumberNode n) {
+                return new Keyed(node, "#" + Evaluator.literal(n));
+            }
+            if (node instanceof IdentifierNode id) {
+                return new Keyed(node, variable(id.getName()));
+            }
+            if (node instanceof KeywordNode k) {
+                return new Keyed(node, variable(k.getKeyword()));
+            }
+            if (node instanceof UnaryOpNode u) {
+                Keyed operand = visit(u.getOperand(), counting);
+                ASTNode rebuilt = counting ? node : new UnaryOpNode(u.getOp(), operand.node());
+                if (operand.key() == null) return new Keyed(rebuilt, null);
+                return candidate(rebuilt, "(" + u.getOp() + " " + operand.key() + ")", counting, operand);
+            }
+            if (node instanceof BinaryOpNode b) {
+                Keyed l = visit(b.getLeft(), counting);
+                Keyed r = visit(b.getRight(), counting);
+                ASTNode rebuilt = counting ? node : new BinaryOpNode(b.getOp(), l.node(), r.node());
+                if (l.key() == null || r.key() == null) return new Keyed(rebuilt, null);
+                return candidate(rebuilt, "(" + b.getOp() + " " + l.key() + " " + r.key() + ")", counting, l, r);
+            }
+            if (node instanceof IfNode i) {
+                ASTNode c = visit(i.getCondition(), counting).node();
+                ASTNode t = visit(i.getThenBranch(), counting).node();
+                ASTNode e = i.getElseBranch() == null ? null : visit(i.getElseBranch(), counting).node();
+                return new Keyed(counting ? node : new IfNode(c, t, e), null);
+            }
+            if (node instanceof CallNode c) {
+                List<ASTNode> args = new ArrayList<>(c.getArgs().size());
+                for (ASTNode arg : c.getArgs()) args.add(visit(arg, counting).node());
+                return new Keyed(counting ? node : new CallNode(c.getCallee(), args), null);
+            }
+            throw new Evaluator.EvaluationException("Cannot optimize " + node.getClass().getSimpleName());
+        }
+
+        private Keyed candidate(ASTNode node, String key, boolean counting, Keyed... operands) {
+            Candidate cand = candidates.get(key);
+            if (counting) {
+                if (cand == null) {
+                    cand = new Candidate(key, countNodes(node));
+                    for (Keyed operand : operands) {
+                        if (candidates.containsKey(operand.key())) cand.children.add(operand.key());
+                    }
+                    candidates.put(key, cand);
+                }
+                cand.count++;
+                return new Keyed(node, key);
+            }
+            if (cand == null || !cand.hoisted) return new Keyed(node, key);
+            if (cand.temp == null) {
+                cand.temp = freshTemp();
+                pending.add(new AssignNode(cand.temp, node));
+            }
+            return new Keyed(new IdentifierNode(cand.temp), key);
+        }
+
+        /**
+         * Hoists the largest expressions first. Hoisting one with {@code c}
+         * occurrences leaves its operands with {@code c - 1} fewer occurrences
+         * each (only the temporary's definition still contains them).
+         */
+        private void choose() {
+            List<Candidate> bySize = new ArrayList<>(candidates.values());
+            bySize.sort(Comparator.comparingInt((Candidate c) -> c.size).reversed());
+            for (Candidate c : bySize) {
+                if (c.count >= 2 && c.count * c.size > c.size + 1 + c.count) {
+                    c.hoisted = true;
+                    discount(c, c.count - 1);
+                }
+            }
+        }
+
+        private void discount(Candidate c, int occurrences) {
+            for (String child : c.children) {
+                Candidate d = candidates.get(child);
+                d.count -= occurrences;
+                discount(d, occurrences);
+            }
+        }
+
+        private String variable(String name) {
+            return name + "#" + versions.getOrDefault(name, 0);
+        }
+
+        private void assigned(ASTNode stmt) {
+            if (stmt instanceof AssignNode a) versions.merge(a.getName(), 1, Integer::sum);
+        }
+
+        private String freshTemp() {
+            String name;
+            do {
+                name = TEMP_PREFIX + temps++;
+            } while (names.contains(name));
+            return name;
+        }
+
+        private static ASTNode valueOf(ASTNode stmt) {
+            return stmt instanceof AssignNode a ? a.getValue() : stmt;
+        }
+
+        /** Assignments below the statement level (the parser never produces them) disable CSE there. */
+        private static boolean hasNestedAssign(ASTNode stmt) {
+            return containsAssign(valueOf(stmt));
+        }
+
+        private static boolean containsAssign(ASTNode node) {
+            if (node == null) return false;
+            if (node instanceof AssignNode) return true;
+            if (node instanceof UnaryOpNode u)  return containsAssign(u.getOperand());
+            if (node instanceof BinaryOpNode b) return containsAssign(b.getLeft()) || containsAssign(b.getRight());
+            if (node instanceof IfNode i) {
+                return containsAssign(i.getCondition()) || containsAssign(i.getThenBranch())
+                        || containsAssign(i.getElseBranch());
+            }
+            if (node instanceof CallNode c) {
+                for (ASTNode arg : c.getArgs()) if (containsAssign(arg)) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.lab6.eval;
+
+import org.example.lab6.ast.*;
+
+import java.util.*;
+
+/**
+ * Slot layout of a program: every variable (identifier or keyword) it reads or
+ * assigns gets a dense index into a {@code double[]} environment, in order of
+ * first appearance. Callers resolve names once with {@link #slot} and then
+ * fill and read environments by index.
+ *
+ * The same (iterative) pass records the program's nesting depth, which the
+ * recursive back ends check against {@link Evaluator#MAX_DEPTH} before they
+ * translate anything.
+ */
+public final class Variables {
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int depth;
+
+    public static Variables of(ProgramNode program) {
+        Variables vars = new Variables();
+        Deque<ASTNode> nodes = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        for (ASTNode stmt : program.getStatements()) {
+            nodes.push(stmt);
+            depths.push(1);
+            while (!nodes.isEmpty()) vars.collect(nodes.pop(), depths.pop(), nodes, depths);
+        }
+        return vars;
+    }
+
+    /** Interns the names {@code node} itself mentions and pushes its children, first child on top. */
+    private void collect(ASTNode node, int depth, Deque<ASTNode> nodes, Deque<Integer> depths) {
+        this.depth = Math.max(this.depth, depth);
+        List<ASTNode> children;
+        if (node instanceof AssignNode a) {
+            intern(a.getName());
+            children = List.of(a.getValue());
+        } else if (node instanceof BinaryOpNode b) {
+            children = List.of(b.getLeft(), b.getRight());
+        } else if (node instanceof UnaryOpNode u) {
+            children = List.of(u.getOperand());
+        } else if (node instanceof IfNode i) {
+            children = i.getElseBranch() == null
+                    ? List.of(i.getCondition(), i.getThenBranch())
+                    : List.of(i.getCondition(), i.getThenBranch(), i.getElseBranch());
+        } else if (node instanceof CallNode c) {
+            children = c.getArgs();
+        } else {
+            if (node instanceof IdentifierNode id) intern(id.getName());
+            if (node instanceof KeywordNode k) intern(k.getKeyword());
+            return;
+        }
+        for (int i = children.size() - 1; i >= 0; i--) {
+            nodes.push(children.get(i));
+            depths.push(depth + 1);
+        }
+    }
+
+    /** Slot of {@code name}, adding it if it is new. */
+    int intern(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) return slot;
+        slots.put(name, names.size());
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    /** Slot of {@code name}, or -1 if the program never mentions it. */
+    public int slot(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    public String name(int slot)      { return names.get(slot); }
+    public int size()                 { return names.size(); }
+    public List<String> names()       { return Collections.unmodifiableList(names); }
+
+    /** Most nodes on one path from a statement down to a leaf: {@code x = a + 1} is 3 deep. */
+    public int depth()                { return depth; }
+
+    /** A zeroed environment with one slot per variable. */
+    public double[] newEnvironment()  { return new double[names.size()]; }
+}
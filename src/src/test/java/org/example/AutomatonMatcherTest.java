@@ -0,0 +1,217 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutomatonMatcherTest {
+
+    /** a+ over {a, b}, completed with an explicit trap state. */
+    private static FiniteAutomaton withTrap() {
+        Map<String, Map<Character, Set<String>>> delta = new HashMap<>();
+        delta.put("q0", Map.of('a', Set.of("q1"), 'b', Set.of("trap")));
+        delta.put("q1", Map.of('a', Set.of("q1"), 'b', Set.of("trap")));
+        delta.put("trap", Map.of('a', Set.of("trap"), 'b', Set.of("trap")));
+        return new FiniteAutomaton(Set.of("q0", "q1", "trap"), Set.of('a', 'b'), delta, "q0", Set.of("q1"));
+    }
+
+    /** Nondeterministic, with a trap reached on 'b' next to a live state on the same symbol. */
+    private static FiniteAutomaton nondeterministicWithTrap() {
+        Map<String, Map<Character, Set<String>>> delta = new HashMap<>();
+        delta.put("q0", Map.of('a', Set.of("q0", "q1"), 'b', Set.of("trap")));
+        delta.put("q1", Map.of('b', Set.of("q2", "trap")));
+        delta.put("trap", Map.of('a', Set.of("trap"), 'b', Set.of("trap")));
+        return new FiniteAutomaton(Set.of("q0", "q1", "q2", "trap"), Set.of('a', 'b'), delta, "q0", Set.of("q2"));
+    }
+
+    @Test
+    void trapStateKillsTheDfaMatcher() {
+        CompiledAutomaton dfa = withTrap().compile();
+        assertFalse(dfa.isLive(dfa.step(0, 'b')));
+        assertTrue(dfa.isLive(dfa.step(0, 'a')));
+
+        DfaMatcher m = dfa.matcher();
+        assertTrue(m.feed("aaa"));
+        assertTrue(m.isAccepting());
+        assertFalse(m.feed("ab"));
+        assertTrue(m.isDead());
+        assertEquals(CompiledAutomaton.DEAD, m.state());
+        assertEquals(4, m.rejectOffset());
+        assertFalse(m.feed("aaaa")); // ignored once dead
+        assertEquals(5, m.position());
+        assertEquals(4, m.result().getRejectOffset());
+    }
+
+    @Test
+    void trapStateKillsTheNfaMatcher() {
+        NfaMatcher m = withTrap().compileNfa().matcher();
+        assertTrue(m.feed("aa"));
+        assertFalse(m.feed("bb"));
+        assertTrue(m.isDead());
+        assertEquals(2, m.rejectOffset()); // the first 'b' leads only into the trap
+
+        m = nondeterministicWithTrap().compileNfa().matcher();
+        assertTrue(m.feed("aab"));
+        assertTrue(m.isAccepting());
+        assertFalse(m.feed("a"));
+        assertEquals(3, m.rejectOffset());
+    }
+
+    @Test
+    void liveStatesDoNotChangeTheLanguage() {
+        FiniteAutomaton fa = nondeterministicWithTrap();
+        CompiledAutomaton dfa = fa.compile();
+        BitParallelNfa nfa = fa.compileNfa();
+        for (String input : List.of("", "a", "ab", "aab", "aaab", "b", "abb", "aba", "ba", "aaaaab")) {
+            boolean expected = fa.stringBelongToLanguage(input);
+            assertEquals(expected, dfa.matches(input), input);
+            assertEquals(expected, nfa.matches(input), input);
+            assertEquals(expected, dfa.minimize().matches(input), input);
+
+            DfaMatcher dm = dfa.matcher();
+            dm.feed(input);
+            assertEquals(expected, dm.isAccepting(), input);
+            NfaMatcher nm = nfa.matcher();
+            nm.feed(input);
+            assertEquals(expected, nm.isAccepting(), input);
+        }
+    }
+
+    @Test
+    void emptyLanguageIsDeadFromTheStart() {
+        Map<String, Map<Character, Set<String>>> delta = Map.of("q0", Map.of('a', Set.of("q0")));
+        FiniteAutomaton fa = new FiniteAutomaton(Set.of("q0"), Set.of('a'), delta, "q0", Set.of());
+
+        DfaMatcher dm = fa.compile().matcher();
+        assertTrue(dm.isDead());
+        assertEquals(0, dm.rejectOffset());
+        NfaMatcher nm = fa.compileNfa().matcher();
+        assertTrue(nm.isDead());
+        assertEquals(0, nm.rejectOffset());
+        assertFalse(nm.feed("aaa"));
+        assertEquals(0, nm.result().getRejectOffset());
+    }
+
+    @Test
+    void snapshotsRestoreLiveness() {
+        DfaMatcher m = withTrap().compile().matcher();
+        m.feed("aa");
+        AutomatonMatcher.Snapshot alive = m.snapshot();
+        m.feed("b");
+        assertTrue(m.isDead());
+        m.restore(alive);
+        assertFalse(m.isDead());
+        assertTrue(m.feed("a"));
+        assertTrue(m.isAccepting());
+    }
+
+    // -------------------------------------------------------------------------
+    // Streaming
+    // -------------------------------------------------------------------------
+
+    @Test
+    void streamingStopsAtTheTrapState() throws IOException {
+        CompiledAutomaton dfa = withTrap().compile();
+        String input = "aaab" + "a".repeat(10_000);
+
+        CountingStream bytes = new CountingStream(input);
+        StreamMatchResult result = dfa.match(bytes, new byte[4]);
+        assertFalse(result.isAccepted());
+        assertEquals(3, result.getRejectOffset());
+        assertEquals(4, bytes.read); // the first buffer only
+
+        CountingStream channel = new CountingStream(input);
+        result = dfa.match(Channels.newChannel(channel), ByteBuffer.allocate(4));
+        assertEquals(3, result.getRejectOffset());
+        assertEquals(4, channel.read);
+
+        CountingReader chars = new CountingReader(input);
+        result = dfa.match(chars, new char[4]);
+        assertEquals(3, result.getRejectOffset());
+        assertEquals(4, chars.read);
+
+        assertTrue(dfa.match(new StringReader("aaaa"), new char[3]).isAccepted());
+        assertTrue(dfa.match(new ByteArrayInputStream("aaaa".getBytes()), new byte[3]).isAccepted());
+    }
+
+    @Test
+    void streamingReadsNothingWhenNothingCanBeAccepted() throws IOException {
+        Map<String, Map<Character, Set<String>>> delta = Map.of("q0", Map.of('a', Set.of("q0")));
+        CompiledAutomaton dfa = new FiniteAutomaton(Set.of("q0"), Set.of('a'), delta, "q0", Set.of()).compile();
+
+        CountingStream bytes = new CountingStream("aaa");
+        assertEquals(0, dfa.match(bytes).getRejectOffset());
+        assertEquals(0, bytes.read);
+        CountingReader chars = new CountingReader("aaa");
+        assertEquals(0, dfa.match(chars).getRejectOffset());
+        assertEquals(0, chars.read);
+        assertEquals(0, dfa.match(Channels.newChannel(new CountingStream("aaa"))).getRejectOffset());
+    }
+
+    @Test
+    void emptyBuffersAreRejected() {
+        CompiledAutomaton dfa = withTrap().compile();
+        assertThrows(IllegalArgumentException.class,
+                () -> dfa.match(new ByteArrayInputStream(new byte[] {'a'}), new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> dfa.match(new StringReader("a"), new char[0]));
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(new byte[] {'a'}));
+        assertThrows(IllegalArgumentException.class, () -> dfa.match(channel, ByteBuffer.allocate(0)));
+    }
+
+    /** Counts the bytes handed out. */
+    private static final class CountingStream extends InputStream {
+        private final byte[] data;
+        int read;
+
+        CountingStream(String data) {
+            this.data = data.getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public int read() {
+            return read < data.length ? data[read++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (read == data.length) return -1;
+            int n = Math.min(len, data.length - read);
+            System.arraycopy(data, read, b, off, n);
+            read += n;
+            return n;
+        }
+    }
+
+    /** Counts the characters handed out. */
+    private static final class CountingReader extends Reader {
+        private final String data;
+        int read;
+
+        CountingReader(String data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read(char[] b, int off, int len) {
+            if (read == data.length()) return -1;
+            int n = Math.min(len, data.length() - read);
+            data.getChars(read, read + n, b, off);
+            read += n;
+            return n;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
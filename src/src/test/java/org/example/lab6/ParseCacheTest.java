@@ -0,0 +1,82 @@
+package org.example.lab6;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.ast.AssignNode;
+import org.example.lab6.ast.AstCodec;
+import org.example.lab6.ast.FlatAst;
+import org.example.lab6.ast.NumberNode;
+import org.example.lab6.ast.ProgramNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+
+    private static final String SOURCE = "income = 5000; tax = income * 15%; if tax > 100 then save(tax);";
+
+    @Test
+    void hitsReturnIndependentTrees() {
+        ParseCache cache = new ParseCache(1_000);
+        ProgramNode first = cache.parse(SOURCE);
+        String expected = first.describe("");
+        first.getStatements().set(0, new AssignNode("income", new NumberNode("1", false)));
+
+        ProgramNode second = cache.parse(SOURCE);
+        assertEquals(1, cache.hits());
+        assertNotSame(first, second);
+        assertEquals(expected, second.describe(""));
+    }
+
+    @Test
+    void restartReadsTheSameTreeFromDisk(@TempDir Path dir) {
+        String expected = new ParseCache(1_000, dir).parse(SOURCE).describe("");
+        ParseCache restarted = new ParseCache(1_000, dir);
+        assertEquals(expected, restarted.parse(SOURCE).describe(""));
+        assertEquals(1, restarted.diskHits());
+        assertEquals(0, restarted.misses());
+    }
+
+    @Test
+    void writeFailuresDoNotFailTheParse(@TempDir Path parent) throws IOException {
+        Path dir = parent.resolve("cache");
+        ParseCache cache = new ParseCache(1_000, dir);
+        Files.delete(dir); // every write now fails
+
+        String expected = new Parser(TokenBuffer.of(SOURCE)).parse().describe("");
+        assertEquals(expected, cache.parse(SOURCE).describe(""));
+        assertEquals(1, cache.storeFailures());
+        assertEquals(1, cache.misses());
+        assertEquals(expected, cache.parse(SOURCE).describe("")); // still cached in memory
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void deepProgramsOnEveryPath(@TempDir Path dir) {
+        String source = "x = 1" + " + 1".repeat(3_000) + ";\ny = " + "-".repeat(5_000) + "x;\nz = ١٢;";
+        byte[] expected = encode(new Parser(TokenBuffer.of(source)).parse());
+
+        ParseCache cache = new ParseCache(1_000_000_000L, dir);
+        assertArrayEquals(expected, encode(cache.parse(source)));                             // miss
+        assertArrayEquals(expected, encode(cache.parse(source)));                             // hit
+        assertArrayEquals(expected, encode(new ParseCache(1_000_000_000L, dir).parse(source))); // disk
+        assertEquals(1, cache.hits());
+    }
+
+    /** Compares trees through their encoding: describe() recurses per level. */
+    private static byte[] encode(ProgramNode program) {
+        return AstCodec.encode(FlatAst.of(program));
+    }
+
+    @Test
+    void syntaxErrorsAreNotCached() {
+        ParseCache cache = new ParseCache(1_000);
+        assertThrows(Parser.ParseException.class, () -> cache.parse("x = ;"));
+        assertThrows(Parser.ParseException.class, () -> cache.parse("x = ;"));
+        assertEquals(0, cache.size());
+    }
+}
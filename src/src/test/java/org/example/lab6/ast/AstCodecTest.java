@@ -0,0 +1,237 @@
+package org.example.lab6.ast;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AstCodecTest {
+
+    private static final List<String> SOURCES = List.of(
+            """
+            income = 5000;
+            expense = 2000;
+            tax = income * 15%;
+            profit = income - expense - tax;
+            if profit > 1000 then save(profit) else invest(profit);
+            budget = income - expense;
+            loss = expense - income;
+            if loss > 0 then invest(loss * 50%);
+            """,
+            // literals whose spelling is not the canonical form of their value
+            "a = 007; b = 1.50; c = 15%; d = 007.250%; e = 0.1; f = 00; g = 1.0; h = 100%; i = 0%;",
+            "big = 123456789012345; huge = 99999999999999999999; pi = 3.14159265358979; tiny = 0.000001;",
+            "x = - - -1; y = -(a + b) * -c / (d - -e); z = a >= b; w = a != -0;",
+            "if a == b then save() else budget(1, 2, invest(3)); invest(); save(a, b);",
+            "if (a < b) * (b <= c) then save(1);",
+            "");
+
+    @Test
+    void roundTripsHeapBuffers() {
+        for (String source : SOURCES) {
+            byte[] bytes = AstCodec.encode(parse(source));
+            assertRoundTrip(source, ByteBuffer.wrap(bytes));
+        }
+    }
+
+    @Test
+    void roundTripsDirectBuffers() {
+        for (String source : SOURCES) {
+            byte[] bytes = AstCodec.encode(parse(source));
+            assertRoundTrip(source, ByteBuffer.allocateDirect(bytes.length).put(bytes).flip());
+        }
+    }
+
+    @Test
+    void roundTripsLittleEndianBuffers() {
+        for (String source : SOURCES) {
+            byte[] bytes = AstCodec.encode(parse(source));
+            assertRoundTrip(source, ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+            assertRoundTrip(source, ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.LITTLE_ENDIAN)
+                    .put(bytes).flip());
+        }
+    }
+
+    @Test
+    void roundTripsAtAnOffset() {
+        for (String source : SOURCES) {
+            byte[] bytes = AstCodec.encode(parse(source));
+            byte[] padded = new byte[bytes.length + 10];
+            Arrays.fill(padded, (byte) 0x7F);
+            System.arraycopy(bytes, 0, padded, 7, bytes.length);
+
+            // a position past the start, and trailing bytes after the program
+            ByteBuffer heap = ByteBuffer.wrap(padded).position(7);
+            assertEquals(parse(source).describe(""), AstCodec.decode(heap).describe(""), source);
+            assertEquals(7 + bytes.length, heap.position());
+
+            // a slice, whose array offset is not zero
+            ByteBuffer slice = ByteBuffer.wrap(padded, 7, bytes.length).slice();
+            assertEquals(7, slice.arrayOffset());
+            assertRoundTrip(source, slice);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(padded.length).put(padded).position(7);
+            assertEquals(parse(source).describe(""), AstCodec.decode(direct).describe(""), source);
+            assertEquals(7 + bytes.length, direct.position());
+        }
+    }
+
+    @Test
+    void decodesConsecutivePrograms() {
+        byte[] first = AstCodec.encode(parse(SOURCES.get(0)));
+        byte[] second = AstCodec.encode(parse(SOURCES.get(1)));
+        ByteBuffer in = ByteBuffer.allocate(first.length + second.length).put(first).put(second).flip();
+        assertEquals(parse(SOURCES.get(0)).describe(""), AstCodec.decode(in).describe(""));
+        assertEquals(parse(SOURCES.get(1)).describe(""), AstCodec.decode(in).describe(""));
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    void roundTripsDeepTrees() {
+        String[] sources = {FlatAstTest.LONG_SUM, FlatAstTest.UNARY_CHAIN, FlatAstTest.NESTED};
+        for (String source : sources) {
+            byte[] bytes = AstCodec.encode(parse(source));
+            // compared through a second encoding: describe() recurses per level
+            assertArrayEquals(bytes, AstCodec.encode(AstCodec.decode(ByteBuffer.wrap(bytes))));
+            assertArrayEquals(bytes, AstCodec.encode(AstCodec.decode(
+                    ByteBuffer.allocateDirect(bytes.length).put(bytes).flip())));
+        }
+    }
+
+    @Test
+    void keepsLiteralSpellings() {
+        FlatAst flat = AstCodec.decodeFlat(ByteBuffer.wrap(AstCodec.encode(parse(SOURCES.get(1)))));
+        StringBuilder literals = new StringBuilder();
+        for (int n = 0; n < flat.size(); n++) {
+            if (flat.kind(n) == FlatAst.NUMBER) {
+                literals.append(flat.numberText(n)).append(flat.isPercent(n) ? "% " : " ");
+            }
+        }
+        assertEquals("007 1.50 15% 007.250% 0.1 00 1.0 100% 0% ", literals.toString());
+    }
+
+    @Test
+    void encodingIsStable() {
+        for (String source : SOURCES) {
+            byte[] bytes = AstCodec.encode(parse(source));
+            assertArrayEquals(bytes, AstCodec.encode(AstCodec.decodeFlat(ByteBuffer.wrap(bytes))), source);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Corruption
+    // -------------------------------------------------------------------------
+
+    @Test
+    void rejectsForeignInput() {
+        assertFormatException(new byte[0]);
+        assertFormatException("LAS".getBytes());
+        assertFormatException("LASX\1\0\0\0".getBytes());
+        assertFormatException("hello world".getBytes());
+
+        byte[] bytes = AstCodec.encode(parse(SOURCES.get(0)));
+        bytes[4] = 2; // version
+        assertFormatException(bytes);
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        for (String source : SOURCES) {
+            byte[] bytes = AstCodec.encode(parse(source));
+            for (int length = 0; length < bytes.length; length++) {
+                assertFormatException(Arrays.copyOf(bytes, length));
+            }
+        }
+    }
+
+    @Test
+    void rejectsHugeLengthsWithoutAllocating() {
+        // magic, version, then a string count of 2^31 - 1
+        byte[] bytes = {'L', 'A', 'S', 'T', 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertFormatException(bytes);
+        // a varint that never ends
+        byte[] overlong = new byte[20];
+        System.arraycopy(bytes, 0, overlong, 0, 5);
+        Arrays.fill(overlong, 5, overlong.length, (byte) 0x80);
+        assertFormatException(overlong);
+    }
+
+    @Test
+    void rejectsBadReferences() {
+        // "x = 1;": strings [x], nodes NUMBER 1, ASSIGN x <- 1, statement gap 2
+        byte[] good = {'L', 'A', 'S', 'T', 1, 1, 1, 'x', 2, 0x10, 1, 5, 0, 1, 1, 2};
+        assertArrayEquals(good, AstCodec.encode(parse("x = 1;")));
+        assertEquals("x", AstCodec.decodeFlat(ByteBuffer.wrap(good)).name(1));
+
+        byte[] badString = good.clone();
+        badString[12] = 1; // ASSIGN names string 1 of 1
+        assertFormatException(badString);
+
+        byte[] badChild = good.clone();
+        badChild[13] = 2; // ASSIGN value two nodes back, before node 0
+        assertFormatException(badChild);
+
+        byte[] selfChild = good.clone();
+        selfChild[13] = 0; // ASSIGN value is itself
+        assertFormatException(selfChild);
+
+        byte[] badStatement = good.clone();
+        badStatement[15] = 3; // statement past the last node
+        assertFormatException(badStatement);
+
+        byte[] badKind = good.clone();
+        badKind[11] = 5 | 8; // flags on a non-number node
+        assertFormatException(badKind);
+
+        byte[] badFlags = good.clone();
+        badFlags[9] = (byte) (0x10 | 0x20); // INTEGER and TEXT
+        assertFormatException(badFlags);
+    }
+
+    @Test
+    void randomCorruptionOnlyThrowsFormatException() {
+        Random random = new Random(24);
+        for (String source : SOURCES) {
+            byte[] bytes = AstCodec.encode(parse(source));
+            for (int round = 0; round < 2_000; round++) {
+                byte[] corrupt = bytes.clone();
+                int flips = 1 + random.nextInt(3);
+                for (int i = 0; i < flips; i++) corrupt[random.nextInt(corrupt.length)] ^= (byte) (1 + random.nextInt(255));
+                try {
+                    AstCodec.decode(ByteBuffer.wrap(corrupt));
+                } catch (AstCodec.FormatException expected) {
+                    // fine: anything else is a bug
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+
+    private static ProgramNode parse(String source) {
+        return new Parser(TokenBuffer.of(source)).parse();
+    }
+
+    /** Decodes from {@code in}'s position and checks the tree and that exactly the program was consumed. */
+    private static void assertRoundTrip(String source, ByteBuffer in) {
+        int start = in.position();
+        int length = AstCodec.encode(parse(source)).length;
+        ProgramNode decoded = AstCodec.decode(in);
+        assertEquals(parse(source).describe(""), decoded.describe(""), source);
+        assertEquals(start + length, in.position(), source);
+    }
+
+    private static void assertFormatException(byte[] bytes) {
+        assertThrows(AstCodec.FormatException.class, () -> AstCodec.decodeFlat(ByteBuffer.wrap(bytes)),
+                Arrays.toString(bytes));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        assertThrows(AstCodec.FormatException.class, () -> AstCodec.decodeFlat(direct), Arrays.toString(bytes));
+    }
+}
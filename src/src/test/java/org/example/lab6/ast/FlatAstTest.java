@@ -0,0 +1,44 @@
+package org.example.lab6.ast;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.Parser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatAstTest {
+
+    // deep enough to overflow a recursive walk at the default stack size
+    static final String LONG_SUM = "x = 1" + " + 1".repeat(5_000) + ";";
+    static final String UNARY_CHAIN = "y = " + "-".repeat(5_000) + "1;";
+    static final String NESTED = "z = " + "(".repeat(3_000) + "a" + " * 2)".repeat(3_000) + ";";
+
+    @Test
+    void deepTreesConvertBothWays() {
+        for (String source : new String[] {LONG_SUM, UNARY_CHAIN, NESTED}) {
+            FlatAst flat = new Parser(TokenBuffer.of(source)).parseFlat();
+            ProgramNode tree = new Parser(TokenBuffer.of(source)).parse();
+            // compared through their encodings: describe() is itself recursive
+            assertArrayEquals(AstCodec.encode(flat), AstCodec.encode(FlatAst.of(tree)));
+            assertArrayEquals(AstCodec.encode(flat), AstCodec.encode(FlatAst.of(flat.toProgram())));
+        }
+    }
+
+    @Test
+    void toTreeKeepsShapeAndOrder() {
+        String source = "if a > -b then save(1, c * 2, invest()) else budget(d); e = -(f - 3%) / 007;";
+        assertEquals(new Parser(TokenBuffer.of(source)).parse().describe(""),
+                new Parser(TokenBuffer.of(source)).parseFlat().toProgram().describe(""));
+    }
+
+    @Test
+    void nonAsciiDigitsParseLikeTheTreeParser() {
+        String source = "x = ١٢; y = ١.٥%; z = ۳ + 4;";
+        ProgramNode tree = new Parser(TokenBuffer.of(source)).parse();
+        FlatAst flat = new Parser(TokenBuffer.of(source)).parseFlat();
+        assertEquals(tree.describe(""), flat.toProgram().describe(""));
+        assertEquals(12.0, flat.number(0));
+        assertEquals("١٢", flat.numberText(0));
+        assertEquals(tree.describe(""), FlatAst.of(tree).toProgram().describe(""));
+    }
+}
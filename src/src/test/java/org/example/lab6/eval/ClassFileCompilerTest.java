@@ -0,0 +1,400 @@
+package org.example.lab6.eval;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.MethodModel;
+import java.lang.classfile.attribute.CodeAttribute;
+import java.lang.reflect.Method;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests: a compiled program must leave the same environment as
+ * {@link Evaluator}, bit for bit, and make the same calls in the same order.
+ */
+class ClassFileCompilerTest {
+
+    private static final double[] SPECIAL = {
+        0.0, -0.0, 1.0, -1.0, 2.5, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+
+    private static final String[] COMPARISONS = {">", "<", ">=", "<=", "==", "!="};
+
+    @BeforeEach
+    void clearCache() {
+        ClassFileCompiler.clearCache();
+    }
+
+    @Test
+    void sampleProgram() {
+        assertMatchesEvaluator(parse("""
+                income = 5000;
+                expense = 2000;
+                tax = income * 15%;
+                profit = income - expense - tax;
+                if profit > 1000 then save(profit) else invest(profit);
+                budget = income - expense;
+                loss = expense - income;
+                if loss > 0 then invest(loss * 50%);
+                """));
+    }
+
+    @Test
+    void literalSpellings() {
+        assertMatchesEvaluator(parse("a = 007; b = 1.50; c = 15%; d = 0.5%; e = -0; f = 007.250%; g = - - 3;"));
+    }
+
+    @Test
+    void comparisonsWithNaNAndSignedZeros() {
+        StringBuilder src = new StringBuilder();
+        for (int i = 0; i < COMPARISONS.length; i++) {
+            String cmp = "a " + COMPARISONS[i] + " b";
+            src.append("v").append(i).append(" = ").append(cmp).append(";\n");
+            src.append("if ").append(cmp).append(" then save(").append(i).append(") else invest(").append(i).append(");\n");
+            src.append("if ").append(cmp).append(" then budget(").append(i).append(");\n");
+        }
+        // generic conditions: only an exact zero, of either sign, is false
+        src.append("if a then save(1) else invest(1);\n");
+        src.append("if a + b then save(2);\n");
+        src.append("if -a then save(3) else invest(3);\n");
+        src.append("if (a > b) * 2 then save(4) else invest(4);\n");
+        src.append("n = -a; s = a - b; q = a / b; z = b * -0;\n");
+        ProgramNode program = parse(src.toString());
+
+        for (double a : SPECIAL) {
+            for (double b : SPECIAL) {
+                String where = "a=" + a + ", b=" + b;
+                assertMatchesEvaluator(program, env(program, a, b), where);
+                // the same ifs used as values, which the parser only allows as statements
+                ProgramNode values = ifsAsValues(program);
+                assertMatchesEvaluator(values, env(values, a, b), where + " (if as value)");
+            }
+        }
+    }
+
+    @Test
+    void callsRunInEvaluationOrder() {
+        ProgramNode program = parse("""
+                x = save(invest(1, 2), budget(3)) + invest(budget(4) * 2);
+                if x > 100 then save(5) else invest(6, save(7));
+                if x < 100 then save(8);
+                if budget(9) then invest(10) else save(11);
+                y = -budget() / save(12, 13, invest(14));
+                budget();
+                """);
+        List<String> calls = assertMatchesEvaluator(program);
+        assertEquals(List.of("invest[1.0, 2.0]", "budget[3.0]", "save[3.0, 3.0]", "budget[4.0]", "invest[8.0]",
+                "save[7.0]", "invest[6.0, 7.0]", "save[8.0]", "budget[9.0]", "invest[10.0]",
+                "budget[]", "invest[14.0]", "save[12.0, 13.0, 14.0]", "budget[]"), calls);
+        assertMatchesEvaluator(ifsAsValues(program));
+    }
+
+    @Test
+    void unhandledCalleesPassTheirFirstArgumentThrough() {
+        ProgramNode program = parse("a = save(3, 4) + invest() + budget(-0);");
+        double[] want = Variables.of(program).newEnvironment();
+        new Evaluator(program).evaluate(want);
+        double[] got = Variables.of(program).newEnvironment();
+        ClassFileCompiler.compile(program, Map.of()).evaluate(got);
+        assertArrayEquals(want, got);
+    }
+
+    @Test
+    void longProgramsAreSplitIntoParts() {
+        StringBuilder src = new StringBuilder("x = 1;\n");
+        for (int i = 0; i < 400; i++) {
+            src.append("x = x * 1.01 + ").append(i).append(" - (x / 7);\n");
+            src.append("if x > ").append(i * 3).append(" then save(x) else invest(x - 1);\n");
+        }
+        // a single statement bigger than a whole part, but shallow enough for the evaluator
+        src.append("total = x");
+        for (int i = 0; i < ClassFileCompiler.NODES_PER_METHOD / 2; i++) {
+            src.append(" + (").append(i).append(" * x - ").append(i).append(")");
+        }
+        src.append(";\n");
+        ProgramNode program = parse(src.toString());
+
+        assertMatchesEvaluator(program);
+        long parts = methods(program, "part");
+        assertTrue(parts > 10, "expected the program to be split, got " + parts + " part(s)");
+        assertTrue(methods(program, "expr") > 0, "expected the big statement to be outlined");
+        assertMethodsFitTheJit(program);
+    }
+
+    @Test
+    void manyPartsGoThroughDispatchers() {
+        // 6 nodes per statement: 50 statements per part, a bit over two dispatchers' worth of parts
+        int statements = (2 * ClassFileCompiler.CALLS_PER_METHOD + 1) * (ClassFileCompiler.NODES_PER_METHOD / 6);
+        StringBuilder src = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            src.append(i % 100 == 0 ? "x = save(x) * 1.01 + " : "x = x * 1.01 + ").append(i % 7).append(";\n");
+        }
+        ProgramNode program = parse(src.toString());
+
+        assertMatchesEvaluator(program);
+        assertTrue(methods(program, "part") > 2 * ClassFileCompiler.CALLS_PER_METHOD);
+        assertEquals(3, methods(program, "dispatch"));
+        assertMethodsFitTheJit(program);
+    }
+
+    @Test
+    void deepStatementsAreOutlined() {
+        int depth = 20_000; // far past Evaluator.MAX_DEPTH, so the expected values are worked out by hand
+        ProgramNode program = parse("sum = 1" + " + 1".repeat(depth) + ";\n"
+                + "neg = " + "-".repeat(depth) + "a;\n"
+                + "alt = " + "(a - ".repeat(depth) + "1" + ")".repeat(depth) + ";\n"
+                + "pow = " + "(".repeat(1_000) + "a" + " * 2)".repeat(1_000) + ";\n"
+                + "calls = " + "save(".repeat(depth) + "a" + ")".repeat(depth) + ";\n"
+                + "if " + "-".repeat(depth) + "a then invest(" + "1 + ".repeat(depth) + "1) else budget(a);\n");
+        List<String> calls = new ArrayList<>();
+        JvmProgram jvm = ClassFileCompiler.compile(program, logging(calls));
+        double[] env = jvm.newEnvironment();
+        env[jvm.variables().slot("a")] = 3.0;
+        jvm.evaluate(env);
+
+        assertEquals(depth + 1.0, env[jvm.variables().slot("sum")]);
+        assertEquals(3.0, env[jvm.variables().slot("neg")]);
+        assertEquals(1.0, env[jvm.variables().slot("alt")]); // a - (a - (... (a - 1))) with an even count
+        assertEquals(3.0 * Math.pow(2, 1_000), env[jvm.variables().slot("pow")]);
+        assertEquals(3.0, env[jvm.variables().slot("calls")]);
+        assertEquals(depth + 1, calls.size());
+        assertEquals(Collections.nCopies(depth, "save[3.0]"), calls.subList(0, depth));
+        assertEquals("invest[" + (depth + 1.0) + "]", calls.get(depth));
+        assertMethodsFitTheJit(program);
+    }
+
+    @Test
+    void bigRandomStatements() {
+        Random random = new Random(1018);
+        long outlined = 0;
+        for (int round = 0; round < 100; round++) {
+            StringBuilder src = new StringBuilder();
+            for (int i = 0; i < 3; i++) {
+                src.append("if ").append(bigExpression(random, 20)).append(" then ").append(bigExpression(random, 20))
+                   .append(" else ").append(bigExpression(random, 20)).append(";\n");
+                src.append(VARS[random.nextInt(VARS.length)]).append(" = ").append(bigExpression(random, 60))
+                   .append(";\n");
+            }
+            ProgramNode program = parse(src.toString());
+            Variables vars = Variables.of(program);
+            double[] env = vars.newEnvironment();
+            for (int i = 0; i < env.length; i++) env[i] = SPECIAL[random.nextInt(SPECIAL.length)];
+            assertMatchesEvaluator(program, env, src.toString());
+            assertMatchesEvaluator(ifsAsValues(program), Variables.of(ifsAsValues(program)).newEnvironment(),
+                    src.toString());
+            outlined += methods(program, "expr");
+        }
+        assertTrue(outlined > 50, "only " + outlined + " outlined expressions");
+    }
+
+    @Test
+    void argumentListsAreNotSplit() {
+        String args = "a, ".repeat(ClassFileCompiler.NODES_PER_METHOD - 2) + "a";
+        assertMatchesEvaluator(parse("x = save(" + args + "); invest(" + args + ");"));
+
+        ProgramNode tooLong = parse("x = save(" + args + ", a);");
+        Evaluator.EvaluationException e = assertThrows(Evaluator.EvaluationException.class,
+                () -> ClassFileCompiler.compile(tooLong, Map.of()));
+        assertTrue(e.getMessage().contains(ClassFileCompiler.NODES_PER_METHOD + " arguments"), e.getMessage());
+    }
+
+    @Test
+    void randomPrograms() {
+        Random random = new Random(18);
+        for (int round = 0; round < 500; round++) {
+            ProgramNode program = parse(randomProgram(random));
+            Variables vars = Variables.of(program);
+            double[] env = vars.newEnvironment();
+            for (int i = 0; i < env.length; i++) env[i] = SPECIAL[random.nextInt(SPECIAL.length)];
+            assertMatchesEvaluator(program, env, program.describe(""));
+
+            ProgramNode values = ifsAsValues(program);
+            Variables valueVars = Variables.of(values);
+            double[] valueEnv = valueVars.newEnvironment();
+            for (String name : vars.names()) valueEnv[valueVars.slot(name)] = env[vars.slot(name)];
+            assertMatchesEvaluator(values, valueEnv, values.describe(""));
+        }
+    }
+
+    @Test
+    void environmentTooShortIsRejected() {
+        JvmProgram jvm = ClassFileCompiler.compile("a = b + c;", Map.of());
+        assertThrows(IllegalArgumentException.class, () -> jvm.evaluate(new double[2]));
+    }
+
+    @Test
+    void sameSourceReusesTheClass() {
+        JvmProgram first = ClassFileCompiler.compile("a = save(1);", Map.of());
+        JvmProgram second = ClassFileCompiler.compile("a = save(1);", Map.of("save", args -> 42));
+        assertEquals(1, ClassFileCompiler.cacheSize());
+        assertSame(first.code().getClass(), second.code().getClass());
+
+        double[] env = second.newEnvironment();
+        second.evaluate(env);
+        assertEquals(42.0, env[0]); // bound to its own handlers
+        first.evaluate(env);
+        assertEquals(1.0, env[0]);
+    }
+
+    @Test
+    void cacheEvictsLeastRecentlyUsed() {
+        Class<?> kept = ClassFileCompiler.compile("keep = 0;", Map.of()).code().getClass();
+        Class<?> eldest = ClassFileCompiler.compile("a = 0;", Map.of()).code().getClass();
+        for (int i = 1; i < ClassFileCompiler.CACHE_CAPACITY - 1; i++) {
+            ClassFileCompiler.compile("a = " + i + ";", Map.of());
+            ClassFileCompiler.compile("keep = 0;", Map.of()); // stays recently used
+        }
+        assertEquals(ClassFileCompiler.CACHE_CAPACITY, ClassFileCompiler.cacheSize());
+
+        ClassFileCompiler.compile("b = 0;", Map.of()); // one over: evicts "a = 0;"
+        assertEquals(ClassFileCompiler.CACHE_CAPACITY, ClassFileCompiler.cacheSize());
+        assertSame(kept, ClassFileCompiler.compile("keep = 0;", Map.of()).code().getClass());
+        assertNotSame(eldest, ClassFileCompiler.compile("a = 0;", Map.of()).code().getClass());
+        assertEquals(ClassFileCompiler.CACHE_CAPACITY, ClassFileCompiler.cacheSize());
+    }
+
+    // -------------------------------------------------------------------------
+
+    private static ProgramNode parse(String source) {
+        return new Parser(TokenBuffer.of(source)).parse();
+    }
+
+    private static long methods(ProgramNode program, String prefix) {
+        return Arrays.stream(ClassFileCompiler.compile(program, Map.of()).code().getClass().getDeclaredMethods())
+                .map(Method::getName)
+                .filter(name -> name.startsWith(prefix))
+                .count();
+    }
+
+    /** Every generated method is under HotSpot's 8000-byte limit for JIT compilation. */
+    private static void assertMethodsFitTheJit(ProgramNode program) {
+        byte[] bytes = ClassFileCompiler.classBytes(program, Variables.of(program), new ArrayList<>());
+        for (MethodModel method : ClassFile.of().parse(bytes).methods()) {
+            int length = ((CodeAttribute) method.code().orElseThrow()).codeLength();
+            assertTrue(length < 8000, method.methodName().stringValue() + " has " + length + " bytes");
+        }
+    }
+
+    private static double[] env(ProgramNode program, double a, double b) {
+        Variables vars = Variables.of(program);
+        double[] env = vars.newEnvironment();
+        env[vars.slot("a")] = a;
+        env[vars.slot("b")] = b;
+        return env;
+    }
+
+    private static List<String> assertMatchesEvaluator(ProgramNode program) {
+        return assertMatchesEvaluator(program, Variables.of(program).newEnvironment(), program.describe(""));
+    }
+
+    /**
+     * Runs both back ends from copies of {@code env} with logging handlers and
+     * compares the environments bit for bit and the calls in order.
+     */
+    private static List<String> assertMatchesEvaluator(ProgramNode program, double[] env, String message) {
+        List<String> wantCalls = new ArrayList<>();
+        double[] want = env.clone();
+        new Evaluator(program, logging(wantCalls)).evaluate(want);
+
+        List<String> gotCalls = new ArrayList<>();
+        double[] got = env.clone();
+        ClassFileCompiler.compile(program, logging(gotCalls)).evaluate(got);
+
+        assertArrayEquals(want, got, message);
+        assertEquals(wantCalls, gotCalls, message);
+        return gotCalls;
+    }
+
+    /** Handlers that log each call with its arguments and return their sum. */
+    private static Map<String, CallHandler> logging(List<String> log) {
+        Map<String, CallHandler> handlers = new HashMap<>();
+        for (String name : List.of("save", "invest", "budget")) {
+            handlers.put(name, args -> {
+                log.add(name + Arrays.toString(args));
+                double sum = 0;
+                for (double a : args) sum += a;
+                return sum;
+            });
+        }
+        return handlers;
+    }
+
+    /** {@code if} statements rewritten to {@code rN = if ...}, so the compiler emits them as expressions. */
+    private static ProgramNode ifsAsValues(ProgramNode program) {
+        List<ASTNode> statements = new ArrayList<>();
+        for (ASTNode stmt : program.getStatements()) {
+            statements.add(stmt instanceof IfNode ? new AssignNode("r" + statements.size(), stmt) : stmt);
+        }
+        return new ProgramNode(statements);
+    }
+
+    // -------------------------------------------------------------------------
+    // Random programs
+    // -------------------------------------------------------------------------
+
+    private static final String[] VARS = {"a", "b", "c", "d", "income", "tax"};
+    private static final String[] OPS = {"+", "-", "*", "/", ">", "<", ">=", "<=", "==", "!="};
+    private static final String[] CALLEES = {"save", "invest", "budget"};
+
+    private static String randomProgram(Random random) {
+        StringBuilder src = new StringBuilder();
+        int statements = 1 + random.nextInt(8);
+        for (int i = 0; i < statements; i++) {
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    src.append("if ").append(expression(random, 3)).append(" then ").append(expression(random, 3));
+                    if (random.nextBoolean()) src.append(" else ").append(expression(random, 3));
+                    src.append(";\n");
+                }
+                case 1 -> src.append(expression(random, 3)).append(";\n");
+                default -> src.append(VARS[random.nextInt(VARS.length)]).append(" = ")
+                        .append(expression(random, 4)).append(";\n");
+            }
+        }
+        return src.toString();
+    }
+
+    /** Small random expressions combined {@code pieces - 1} times by operators and calls, hundreds of nodes. */
+    private static String bigExpression(Random random, int pieces) {
+        if (pieces == 1) return expression(random, 3);
+        int left = 1 + random.nextInt(pieces - 1);
+        String l = bigExpression(random, left);
+        String r = bigExpression(random, pieces - left);
+        if (random.nextInt(5) == 0) return CALLEES[random.nextInt(CALLEES.length)] + "(" + l + ", " + r + ")";
+        return "(" + l + " " + OPS[random.nextInt(OPS.length)] + " " + r + ")";
+    }
+
+    private static String expression(Random random, int depth) {
+        switch (depth == 0 ? random.nextInt(2) : random.nextInt(6)) {
+            case 0:
+                return switch (random.nextInt(4)) {
+                    case 0 -> Integer.toString(random.nextInt(10));
+                    case 1 -> random.nextInt(100) + "%";
+                    case 2 -> "0.5";
+                    default -> "0";
+                };
+            case 1:
+                return VARS[random.nextInt(VARS.length)];
+            case 2:
+                return "-" + expression(random, depth - 1);
+            case 3: {
+                StringBuilder call = new StringBuilder(CALLEES[random.nextInt(CALLEES.length)]).append('(');
+                int args = random.nextInt(3);
+                for (int i = 0; i < args; i++) {
+                    if (i > 0) call.append(", ");
+                    call.append(expression(random, depth - 1));
+                }
+                return call.append(')').toString();
+            }
+            default:
+                return "(" + expression(random, depth - 1) + " " + OPS[random.nextInt(OPS.length)] + " "
+                        + expression(random, depth - 1) + ")";
+        }
+    }
+}
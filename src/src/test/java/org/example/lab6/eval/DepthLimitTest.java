@@ -0,0 +1,101 @@
+package org.example.lab6.eval;
+
+import org.example.lab3.TokenBuffer;
+import org.example.lab6.Parser;
+import org.example.lab6.ast.ProgramNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Programs nested past {@link Evaluator#MAX_DEPTH} fail with an
+ * {@link Evaluator.EvaluationException}, never a StackOverflowError, and
+ * programs just inside the limit still run.
+ */
+class DepthLimitTest {
+
+    /** Shapes of the given depth: a left-leaning sum, a unary chain, nested parentheses, nested calls. */
+    private static List<String> shapes(int depth) {
+        return List.of(
+                "x = 1" + " + 1".repeat(depth - 2) + ";",
+                "x = " + "-".repeat(depth - 2) + "1;",
+                "x = " + "(".repeat(depth - 2) + "a" + " * 2)".repeat(depth - 2) + ";",
+                "if a then " + "save(a, ".repeat(depth - 2) + "1" + ")".repeat(depth - 2) + ";");
+    }
+
+    private static final int TOO_DEEP = 5_000;
+
+    @Test
+    void variablesMeasureAnyDepth() {
+        assertEquals(3, Variables.of(parse("x = a + 1;")).depth());
+        assertEquals(4, Variables.of(parse("if a then save(b + 1);")).depth());
+        for (String source : shapes(20_000)) {
+            assertEquals(20_000, Variables.of(parse(source)).depth());
+        }
+        // first appearance order is kept
+        assertEquals(List.of("x", "c", "a", "b"), Variables.of(parse("x = c + (a - b) * a;")).names());
+    }
+
+    @Test
+    void evaluator() {
+        assertDepthChecked(program -> {
+            Evaluator evaluator = new Evaluator(program);
+            evaluator.evaluate(evaluator.newEnvironment());
+        });
+        Evaluator sum = new Evaluator(parse(shapes(Evaluator.MAX_DEPTH).get(0)));
+        double[] env = sum.newEnvironment();
+        sum.evaluate(env);
+        assertEquals(Evaluator.MAX_DEPTH - 1, env[0]);
+    }
+
+    @Test
+    void bytecodeCompiler() {
+        assertDepthChecked(program -> {
+            BytecodeProgram compiled = BytecodeCompiler.compile(program);
+            compiled.evaluate(compiled.newEnvironment());
+        });
+    }
+
+    @Test
+    void columnarEvaluator() {
+        assertDepthChecked(program -> {
+            ColumnarEvaluator columnar = new ColumnarEvaluator(program);
+            columnar.evaluate(columnar.newColumns(3), 3);
+        });
+    }
+
+    @Test
+    void optimizer() {
+        assertDepthChecked(program -> new Evaluator(Optimizer.optimize(program).program()));
+        // node counting is not limited
+        int d = 20_000;
+        int[] nodes = {2 * d - 2, d, 2 * d - 2, 2 * d - 1};
+        List<String> deep = shapes(d);
+        for (int i = 0; i < nodes.length; i++) {
+            assertEquals(nodes[i], Optimizer.countNodes(parse(deep.get(i))), deep.get(i).substring(0, 12));
+        }
+    }
+
+    // -------------------------------------------------------------------------
+
+    private static void assertDepthChecked(Consumer<ProgramNode> backEnd) {
+        for (String source : shapes(Evaluator.MAX_DEPTH)) {
+            backEnd.accept(parse(source));
+        }
+        for (String source : shapes(Evaluator.MAX_DEPTH + 1)) {
+            assertThrows(Evaluator.EvaluationException.class, () -> backEnd.accept(parse(source)));
+        }
+        for (String source : shapes(TOO_DEEP)) {
+            Evaluator.EvaluationException e =
+                    assertThrows(Evaluator.EvaluationException.class, () -> backEnd.accept(parse(source)));
+            assertTrue(e.getMessage().contains(TOO_DEEP + " levels"), e.getMessage());
+        }
+    }
+
+    private static ProgramNode parse(String source) {
+        return new Parser(TokenBuffer.of(source)).parse();
+    }
+}